@@ -1,22 +1,23 @@
 package com.aghajari.touchview;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
 import android.animation.TimeInterpolator;
-import android.animation.ValueAnimator;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
-import android.graphics.PathMeasure;
 import android.graphics.PointF;
-import android.graphics.RectF;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.util.Pair;
+import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -25,10 +26,33 @@ import java.util.List;
 
 public class AXTouchView extends View {
 
-    private PointF nextPoint;
-    private final ArrayList<PointF> points = new ArrayList<>();
+    /**
+     * The progress moves to the next step once the touch position reaches it
+     */
+    public static final int TRACKING_STEPS = TraceEngine.TRACKING_STEPS;
+    /**
+     * The progress moves to the nearest point of the path ahead of it,
+     * within the touch tolerance of the touch position
+     */
+    public static final int TRACKING_PROJECTION = TraceEngine.TRACKING_PROJECTION;
+
+    static final float DEFAULT_STEP = 0.01f;
+    private static final int MAX_TRACERS = 4;
+    private static final int INVALID_POINTER = -1;
+    private static final float ARROW_HEAD_LENGTH = 40;
+    private static final double ARROW_HEAD_ANGLE = Math.toRadians(55);
+
+    private final TraceEngine engine = new TraceEngine();
+    private final TraceStats stats = new TraceStats();
+    private final PointF currentPosition = new PointF();
     private final float[] point = new float[2];
+    private final float[] tangent = new float[2];
     private boolean isTouching = false;
+    // The primary tracer owns the engine of this view, the others are created with multi-touch
+    private final Tracer[] tracers = new Tracer[MAX_TRACERS];
+    private int tracerCount = 1;
+    private boolean multiTouchEnabled = false;
+    private OnTracerProgressListener onTracerProgressListener;
 
     private int hoverColor = 0xFFDDDDDD,
             touchingHoverColor = Color.LTGRAY,
@@ -36,19 +60,53 @@ public class AXTouchView extends View {
     private final Paint paint = new Paint();
     private final Paint helperPaint;
     private boolean helperEnabled = true;
-
-    private float step = 0.01f;
-    private float progress;
-    private Path path, orgPath;
-    private PathMeasure pathMeasure;
+    private boolean touchHistoryEnabled = true;
+
+    private float step = DEFAULT_STEP;
+    private float stepDistance;
+    private boolean adaptiveStep;
+    private Path path, orgPath, sourcePath;
+    private PreparedPath preparedPath;
+    private boolean pathPending;
+    private PathSampleTable samples;
+    private PathGeometryCache.Source source;
+    private PathGeometry geometry;
     private boolean toCenter;
+    private float offsetX, offsetY;
+    private SavedState restoredState;
 
     private OnTouchViewListener onTouchViewListener;
+    private boolean immediateProgressUpdates;
+    private boolean progressChangePending;
+    private final Choreographer.FrameCallback progressCallback = frameTimeNanos -> {
+        progressChangePending = false;
+        dispatchProgressChanged();
+    };
     private List<Pair<Float, Float>> helpers;
 
-    private ValueAnimator animator = null;
+    private final RevealTimeline timeline = new RevealTimeline(this);
     private float animationProgress = -1;
 
+    private final Path helpersPath = new Path();
+    private float[] arrowHeads = new float[0];
+    private int arrowHeadsSize;
+    private final Path animationPath = new Path();
+    private float animationPathProgress;
+
+    private boolean thumbnailMode;
+    private ThumbnailCache.Key thumbnailKey;
+    private final ThumbnailCache.Style thumbnailStyle = new ThumbnailCache.Style();
+
+    private TouchViewMetrics metrics;
+    private TouchRecorder recorder;
+    // Receives every step of the engine, while recording or delivering immediate progress updates
+    private final TraceEngine.Listener stepListener = progress -> {
+        if (recorder != null)
+            recorder.onStep(progress);
+        if (immediateProgressUpdates)
+            dispatchProgressChanged();
+    };
+
     public interface OnTouchViewListener {
         void onProgressChanged(AXTouchView touchView, float progress);
 
@@ -57,6 +115,33 @@ public class AXTouchView extends View {
         void onStopTrackingTouch(AXTouchView touchView);
     }
 
+    /**
+     * Receives the progress of each tracer, the primary tracer is 0
+     *
+     * @see #setMultiTouchEnabled(boolean)
+     */
+    public interface OnTracerProgressListener {
+        void onTracerProgressChanged(AXTouchView touchView, int tracer, float progress);
+    }
+
+    /**
+     * A pointer and the trace it moves forward, with its own engine and traced segment
+     */
+    private static final class Tracer {
+        final TraceEngine engine;
+        final Path tracedPath = new Path();
+        float tracedProgress;
+        int pointerId = INVALID_POINTER;
+
+        Tracer(TraceEngine engine) {
+            this.engine = engine;
+        }
+
+        boolean isActive() {
+            return pointerId != INVALID_POINTER;
+        }
+    }
+
     public AXTouchView(Context context) {
         this(context, null);
     }
@@ -67,6 +152,7 @@ public class AXTouchView extends View {
 
     public AXTouchView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        tracers[0] = new Tracer(engine);
 
         paint.setStyle(Paint.Style.STROKE);
         paint.setStrokeCap(Paint.Cap.ROUND);
@@ -83,12 +169,102 @@ public class AXTouchView extends View {
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
+        if (metrics == null) {
+            drawFrame(canvas);
+        } else {
+            long start = System.nanoTime();
+            drawFrame(canvas);
+            metrics.onFrame(this, System.nanoTime() - start);
+        }
+    }
+
+    private void drawFrame(Canvas canvas) {
+        if (thumbnailMode && animationProgress == -1) {
+            drawThumbnail(canvas);
+            return;
+        }
+
+        ensurePath();
+        drawContent(canvas);
+    }
+
+    /**
+     * Draws the cached thumbnail of this view, the thumbnail will be
+     * rendered and cached if it doesn't exist yet.
+     */
+    private void drawThumbnail(Canvas canvas) {
+        int width = getWidth(), height = getHeight();
+        if (sourcePath == null || width <= 0 || height <= 0)
+            return;
+
+        ThumbnailCache.Style style = updateThumbnailStyle();
+        if (thumbnailKey == null || !thumbnailKey.matches(sourcePath, width, height, style)) {
+            thumbnailKey = new ThumbnailCache.Key(sourcePath, width, height, style.copy());
+        }
+
+        Bitmap bitmap = ThumbnailCache.get(thumbnailKey);
+        if (metrics != null)
+            metrics.onThumbnailCache(bitmap != null);
+
+        if (bitmap == null) {
+            ensurePath();
+            // The helpers may have been modified in place since the render cache was built
+            if (helperEnabled && geometry != null)
+                buildRenderCache();
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            drawContent(new Canvas(bitmap));
+            ThumbnailCache.put(thumbnailKey, bitmap);
+        }
+        canvas.drawBitmap(bitmap, 0, 0, null);
+    }
+
+    /**
+     * Updates the reused style of this view, everything except the path and size
+     * which affects the thumbnail
+     */
+    private ThumbnailCache.Style updateThumbnailStyle() {
+        ThumbnailCache.Style style = thumbnailStyle;
+        style.hoverColor = hoverColor;
+        style.touchedColor = touchedColor;
+        style.strokeWidth = paint.getStrokeWidth();
+        style.progress = engine.getProgress();
+        style.step = stepDistance > 0 ? stepDistance : step;
+        style.stepMode = getStepMode();
+        style.toCenter = toCenter;
+        style.helpersEnabled = helperEnabled;
+        if (helperEnabled) {
+            style.helperColor = helperPaint.getColor();
+            style.helperWidth = helperPaint.getStrokeWidth();
+            style.setHelpers(helpers);
+        }
+        return style;
+    }
+
+    private void drawContent(Canvas canvas) {
         if (path == null)
             return;
 
+        int saveCount = canvas.save();
+        canvas.translate(offsetX, offsetY);
+        drawPath(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * Draws the path in its own coordinates, the canvas is already translated to the center
+     */
+    private void drawPath(Canvas canvas) {
         if (animationProgress >= 0 && animationProgress <= 1.0f) {
+            if (animationProgress < animationPathProgress) {
+                animationPath.rewind();
+                animationPathProgress = 0;
+            }
+            appendSegment(animationPath, animationPathProgress, animationProgress,
+                    animationPath.isEmpty());
+            animationPathProgress = animationProgress;
+
             paint.setColor(hoverColor);
-            canvas.drawPath(getSubPath(0, animationProgress), paint);
+            canvas.drawPath(animationPath, paint);
             return;
         }
 
@@ -102,62 +278,84 @@ public class AXTouchView extends View {
                 helperPaint.setAlpha((int) (orgAlpha * (animationProgress - 1.0f)));
             }
 
-            float radius = 40;
-            double angle = Math.toRadians(55);
-            for (Pair<Float, Float> pair : helpers) {
-                canvas.drawPath(getSubPath(pair.first, pair.second), helperPaint);
-                PointF point = getPoint(pair.second);
-                PointF secondPoint = getPoint(pair.second - step);
-
-                double m = Math.atan2(point.y - secondPoint.y, point.x - secondPoint.x);
-
-                canvas.drawLine(point.x, point.y, (float) (point.x - radius * Math.cos(m - (angle / 2.0))),
-                        (float) (point.y - radius * Math.sin(m - (angle / 2.0))), helperPaint);
-                canvas.drawLine(point.x, point.y, (float) (point.x - radius * Math.cos(m + (angle / 2.0))),
-                        (float) (point.y - radius * Math.sin(m + (angle / 2.0))), helperPaint);
-            }
+            canvas.drawPath(helpersPath, helperPaint);
+            if (arrowHeadsSize > 0)
+                canvas.drawLines(arrowHeads, 0, arrowHeadsSize, helperPaint);
 
             if (orgAlpha != -1)
                 helperPaint.setAlpha(orgAlpha);
         }
 
-        if (progress == 0)
-            return;
-
         paint.setColor(touchedColor);
-        canvas.drawPath(getSubPath(), paint);
+        for (int i = 0; i < tracerCount; i++) {
+            if (tracers[i].engine.getProgress() > 0)
+                canvas.drawPath(tracers[i].tracedPath, paint);
+        }
     }
 
     @Override
     public boolean dispatchTouchEvent(MotionEvent event) {
-        if (!isEnabled() || progress >= 1 || animationProgress != -1)
+        if (recorder != null)
+            recorder.onTouchEvent(event);
+        if (metrics == null)
+            return handleTouchEvent(event);
+
+        long start = System.nanoTime();
+        long steps = getStepCount();
+        boolean result = handleTouchEvent(event);
+        metrics.onTouchEvent(this, event, System.nanoTime() - start, (int) (getStepCount() - steps));
+        return result;
+    }
+
+    /**
+     * @return number of steps taken by all of the tracers
+     */
+    private long getStepCount() {
+        long steps = 0;
+        for (int i = 0; i < tracerCount; i++)
+            steps += tracers[i].engine.getStepCount();
+        return steps;
+    }
+
+    private boolean handleTouchEvent(MotionEvent event) {
+        if (!isEnabled() || thumbnailMode || pathPending || !hasTraceLeft() || animationProgress != -1)
             return super.dispatchTouchEvent(event);
 
-        switch (event.getAction()) {
+        float tolerance = paint.getStrokeWidth() / 2;
+        for (int i = 0; i < tracerCount; i++)
+            tracers[i].engine.setTolerance(tolerance);
+
+        switch (event.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
-                if (isTouching = canStartTouching(event)) {
-                    if (onTouchViewListener != null)
-                        onTouchViewListener.onStartTrackingTouch(this);
-                    invalidate();
+                isTouching = false;
+                releasePointers();
+                if (addPointer(event))
+                    return true;
+                break;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                if (isTouching && (!multiTouchEnabled || addPointer(event)))
+                    return true;
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                if (isTouching) {
+                    removePointer(event.getPointerId(event.getActionIndex()));
+                    if (!hasActivePointer())
+                        stopTracking();
                     return true;
                 }
                 break;
             case MotionEvent.ACTION_UP:
-                boolean old = isTouching;
-                isTouching = false;
-                if (old) {
-                    if (onTouchViewListener != null)
-                        onTouchViewListener.onStopTrackingTouch(this);
-                    invalidate();
+            case MotionEvent.ACTION_CANCEL:
+                releasePointers();
+                if (isTouching) {
+                    stopTracking();
                     return true;
                 }
                 break;
             case MotionEvent.ACTION_MOVE:
                 if (isTouching) {
-                    if (isTouchingNextPoint(event)) {
-                        goToNext();
+                    if (processMove(event))
                         invalidate();
-                    }
                     return true;
                 }
                 break;
@@ -167,66 +365,281 @@ public class AXTouchView extends View {
     }
 
     @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        super.onLayout(changed, left, top, right, bottom);
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        if (restoredState != null) {
+            // The path hasn't been set yet, keep the state for the next restore
+            state.copyFrom(restoredState);
+        } else {
+            state.progress = engine.getProgress();
+            state.step = step;
+            state.stepDistance = stepDistance;
+            state.adaptiveStep = adaptiveStep;
+            state.pathHash = getPathHash();
+        }
+        return state;
+    }
 
-        if (toCenter) {
-            fixPath();
-            setProgress(progress);
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
         }
+
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        restoredState = savedState;
+        if (source != null && !pathPending)
+            restoreState();
     }
 
     /**
-     * Current point has touched, move to the next step
+     * Applies the restored state if it belongs to the current path.
+     * The path is identified by the samples of the saved step, so the saved step is applied first
+     * and it's reverted if the path doesn't match.
+     * Only the traced segment is rebuilt for the next frame,
+     * the touched points are rebuilt from the shared samples once they're needed.
      */
-    private void goToNext() {
-        progress += step;
-        points.add(nextPoint);
-        nextPoint = getPoint(progress + step);
+    private void restoreState() {
+        SavedState state = restoredState;
+        restoredState = null;
+
+        float oldStep = step, oldStepDistance = stepDistance;
+        boolean oldAdaptiveStep = adaptiveStep;
+        step = state.step;
+        stepDistance = state.stepDistance;
+        adaptiveStep = state.adaptiveStep;
+        acquireGeometry();
+
+        if (state.pathHash != getPathHash()) {
+            step = oldStep;
+            stepDistance = oldStepDistance;
+            adaptiveStep = oldAdaptiveStep;
+            acquireGeometry();
+            return;
+        }
 
-        progress = Math.min(Math.max(0, progress), 1);
-        if (onTouchViewListener != null)
-            onTouchViewListener.onProgressChanged(this, progress);
+        engine.restoreProgress(state.progress);
+        updateTracedPath(tracers[0]);
+        invalidate();
     }
 
     /**
-     * @return true if (event.x, event.y) is in the circle
-     * with center of the specified point and radius of strokeWidth/2
+     * @return hash of the sampled geometry of the current path, which identifies it
+     * across configuration changes. Different shapes with the same bounds have different samples.
      */
-    private boolean isTouching(PointF point, MotionEvent event) {
-        return Math.sqrt(Math.pow(event.getX() - point.x, 2)
-                + Math.pow(event.getY() - point.y, 2)) <= (paint.getStrokeWidth() / 2);
+    private int getPathHash() {
+        if (geometry == null)
+            return 0;
+        return 31 * Float.floatToIntBits(geometry.length) + geometry.samples.getContentHash();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        flushProgressChanged();
+        timeline.cancel();
+        releasePath();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateOffset();
     }
 
     /**
-     * @return true if (event.x, event.y) is in area of one of the touched points
+     * Starts tracking the pointer of a down event with the first free tracer whose touched points
+     * it's touching. Only the primary tracer is used unless multi-touch is enabled.
+     *
+     * @return true if the pointer is being tracked
      */
-    private boolean canStartTouching(MotionEvent event) {
-        for (int i = points.size() - 1; i >= 0; i--) {
-            if (isTouching(points.get(i), event))
+    private boolean addPointer(MotionEvent event) {
+        int index = event.getActionIndex();
+        float x = event.getX(index) - offsetX, y = event.getY(index) - offsetY;
+        int count = multiTouchEnabled ? tracerCount : 1;
+        for (int i = 0; i < count; i++) {
+            Tracer tracer = tracers[i];
+            if (tracer.isActive() || tracer.engine.isCompleted() || !canStartTouching(tracer.engine, x, y))
+                continue;
+
+            tracer.pointerId = event.getPointerId(index);
+            if (i == 0)
+                stats.onStart(engine, event.getEventTime());
+            if (!isTouching) {
+                isTouching = true;
+                if (recorder != null)
+                    recorder.onCallback(TouchRecorder.TYPE_START_TRACKING, engine.getProgress());
+                if (onTouchViewListener != null)
+                    onTouchViewListener.onStartTrackingTouch(this);
+                invalidate();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stops tracking a pointer, the progress of its tracer is kept
+     * so the next pointer which touches its touched points continues the trace.
+     */
+    private void removePointer(int pointerId) {
+        for (int i = 0; i < tracerCount; i++) {
+            if (tracers[i].pointerId == pointerId)
+                tracers[i].pointerId = INVALID_POINTER;
+        }
+    }
+
+    private void releasePointers() {
+        for (int i = 0; i < tracerCount; i++)
+            tracers[i].pointerId = INVALID_POINTER;
+    }
+
+    private boolean hasActivePointer() {
+        for (int i = 0; i < tracerCount; i++) {
+            if (tracers[i].isActive())
                 return true;
         }
         return false;
     }
 
     /**
-     * @see #isTouching(PointF, MotionEvent)
+     * @return true if a tracer which can take a pointer hasn't completed the path yet
      */
-    private boolean isTouchingNextPoint(MotionEvent event) {
-        return isTouching(nextPoint, event);
+    private boolean hasTraceLeft() {
+        int count = multiTouchEnabled ? tracerCount : 1;
+        for (int i = 0; i < count; i++) {
+            if (!tracers[i].engine.isCompleted())
+                return true;
+        }
+        return false;
+    }
+
+    private void stopTracking() {
+        flushProgressChanged();
+        isTouching = false;
+        if (recorder != null)
+            recorder.onCallback(TouchRecorder.TYPE_STOP_TRACKING, engine.getProgress());
+        if (onTouchViewListener != null)
+            onTouchViewListener.onStopTrackingTouch(this);
+        invalidate();
     }
 
     /**
-     * Computes the corresponding position with specified progress
+     * Moves every tracer forward through the touch positions of its pointer in a move event,
+     * the listener will be notified once if the progress of the primary tracer has changed.
+     * Notifications are coalesced to the next frame, unless immediate progress updates are enabled,
+     * then the listener is notified of each step as the engine takes it.
+     * Pointers are looked up by their ids, so the order of pointers in the event doesn't matter.
+     *
+     * @return true if the progress of any tracer has changed
+     * @see #setTouchHistoryEnabled(boolean)
+     * @see #setMultiTouchEnabled(boolean)
+     */
+    private boolean processMove(MotionEvent event) {
+        boolean changed = false;
+        for (int i = 0; i < tracerCount; i++) {
+            Tracer tracer = tracers[i];
+            int index = tracer.isActive() ? event.findPointerIndex(tracer.pointerId) : -1;
+            if (index < 0)
+                continue;
+
+            float oldProgress = tracer.engine.getProgress();
+            moveTracer(tracer, event, index, i == 0);
+            float progress = tracer.engine.getProgress();
+            if (progress == oldProgress)
+                continue;
+
+            changed = true;
+            updateTracedPath(tracer);
+            if (i == 0)
+                notifyProgressChanged();
+            if (onTracerProgressListener != null)
+                onTracerProgressListener.onTracerProgressChanged(this, i, progress);
+        }
+        return changed;
+    }
+
+    /**
+     * Passes the touch positions of a pointer to the engine of its tracer.
+     * Positions are translated to the coordinates of the path first,
+     * the {@link TraceStats} are only collected for the primary tracer.
+     */
+    private void moveTracer(Tracer tracer, MotionEvent event, int index, boolean primary) {
+        TraceEngine tracerEngine = tracer.engine;
+        float x = event.getX(index) - offsetX, y = event.getY(index) - offsetY;
+        if (touchHistoryEnabled) {
+            final int historySize = event.getHistorySize();
+            for (int h = 0; h < historySize; h++) {
+                float hx = event.getHistoricalX(index, h) - offsetX;
+                float hy = event.getHistoricalY(index, h) - offsetY;
+                tracerEngine.moveTo(hx, hy);
+                if (primary)
+                    stats.onSample(engine, hx, hy, event.getHistoricalEventTime(h), engine.getTolerance());
+            }
+            tracerEngine.moveTo(x, y);
+        } else {
+            tracerEngine.step(x, y);
+        }
+        if (primary)
+            stats.onSample(engine, x, y, event.getEventTime(), engine.getTolerance());
+    }
+
+    /**
+     * Notifies the listener of the new progress at the next frame, so it's called at most once
+     * per frame however many touch events the frame has. Nothing is left to notify
+     * if immediate progress updates are enabled, since every step has already been notified.
+     *
+     * @see #setImmediateProgressUpdates(boolean)
+     */
+    private void notifyProgressChanged() {
+        if (immediateProgressUpdates || (onTouchViewListener == null && recorder == null))
+            return;
+
+        if (!isAttachedToWindow()) {
+            flushProgressChanged();
+            dispatchProgressChanged();
+        } else if (!progressChangePending) {
+            progressChangePending = true;
+            Choreographer.getInstance().postFrameCallback(progressCallback);
+        }
+    }
+
+    /**
+     * Delivers the pending notification now, if there is any,
+     * so the listener gets the last progress before any other callback.
+     */
+    private void flushProgressChanged() {
+        if (progressChangePending) {
+            progressChangePending = false;
+            Choreographer.getInstance().removeFrameCallback(progressCallback);
+            dispatchProgressChanged();
+        }
+    }
+
+    private void dispatchProgressChanged() {
+        float progress = engine.getProgress();
+        if (recorder != null)
+            recorder.onCallback(TouchRecorder.TYPE_PROGRESS_CHANGED, progress);
+        if (onTouchViewListener != null)
+            onTouchViewListener.onProgressChanged(this, progress);
+    }
+
+    /**
+     * @return true if (x, y) is in area of one of the touched points of the engine
      */
-    private PointF getPoint(float v) {
-        pathMeasure.getPosTan(pathMeasure.getLength() * Math.min(Math.max(0.0f, v), 1.0f),
-                point, null);
-        return new PointF(point[0], point[1]);
+    private boolean canStartTouching(TraceEngine tracerEngine, float x, float y) {
+        boolean result = tracerEngine.canStartTouching(x, y);
+        if (metrics != null)
+            metrics.onHitTest(tracerEngine.getLastHitTestCandidates());
+        return result;
     }
 
     /**
      * Sets path and offsets it to the center of this view
+     *
+     * @see #setPath(Path, boolean)
      */
     public void setPath(Path path) {
         setPath(path, true);
@@ -234,81 +647,188 @@ public class AXTouchView extends View {
 
 
     /**
-     * Sets path
+     * Sets path, views showing the same Path object share its measurements.
+     * So the path must not be modified after it has been set,
+     * set a new Path object instead.
+     * <p>
+     * Each contour of the path is a stroke, strokes are traced in order and
+     * a stroke unlocks when the previous one is completed.
+     * The progress and step are over the total length of all strokes.
      *
      * @param path     New path
      * @param toCenter Offsets the path to the center of this view
      */
     public void setPath(Path path, boolean toCenter) {
-        if (path != orgPath)
-            this.orgPath = new Path(path);
+        setPath(path, null, toCenter);
+    }
+
+    /**
+     * Sets the strokes of a multi-stroke shape and offsets them to the center of this view.
+     * The strokes are combined into a single path, so each view gets its own copy;
+     * to share the measurements between views, combine the strokes once and call
+     * {@link #setPath(Path)} with the combined path instead.
+     *
+     * @param strokes ordered strokes, each stroke unlocks when the previous one is completed
+     */
+    public void setStrokes(@NonNull Path... strokes) {
+        Path path = new Path();
+        for (Path stroke : strokes)
+            path.addPath(stroke);
+        setPath(path, true);
+    }
+
+    /**
+     * Sets a prepared path and offsets it to the center of this view
+     *
+     * @see #setPath(PreparedPath, boolean)
+     */
+    @MainThread
+    public void setPath(@NonNull PreparedPath path) {
+        setPath(path, true);
+    }
+
+    /**
+     * Sets a path which has been measured and sampled by {@link PreparedPath},
+     * the step of this view will be changed to the step the path has been prepared with
+     * and the adaptive step will be disabled.
+     *
+     * @param path     New prepared path
+     * @param toCenter Offsets the path to the center of this view
+     */
+    @MainThread
+    public void setPath(@NonNull PreparedPath path, boolean toCenter) {
+        this.step = path.getStep();
+        this.stepDistance = 0;
+        this.adaptiveStep = false;
+        setPath(path.getPath(), path, toCenter);
+    }
+
+    private void setPath(Path path, @Nullable PreparedPath prepared, boolean toCenter) {
+        this.sourcePath = path;
+        this.preparedPath = prepared;
         this.toCenter = toCenter;
-        fixPath();
 
-        progress = 0.0f;
-        points.clear();
-        points.add(getPoint(0));
-        nextPoint = getPoint(progress + step);
+        if (thumbnailMode) {
+            // The old path isn't needed anymore, even if the new one is never loaded
+            if (source != null && !source.isSourceOf(path))
+                releasePath();
+            pathPending = true;
+            for (int i = 0; i < tracerCount; i++)
+                tracers[i].engine.restoreProgress(0.0f);
+            invalidate();
+            return;
+        }
+        loadPath();
+    }
+
+    /**
+     * Loads the path which has been set on thumbnail mode, if there is any,
+     * or acquires the geometry of the current path again if it has been released.
+     */
+    private void ensurePath() {
+        if (pathPending) {
+            loadPath();
+        } else if (source == null && sourcePath != null) {
+            acquireSource();
+            acquireGeometry();
+            updateOffset();
+        }
+    }
+
+    private void loadPath() {
+        pathPending = false;
+        if (source == null || !source.isSourceOf(sourcePath)) {
+            releasePath();
+            acquireSource();
+        }
+        acquireGeometry();
+        updateOffset();
+
+        for (int i = 0; i < tracerCount; i++) {
+            tracers[i].engine.reset();
+            updateTracedPath(tracers[i]);
+        }
+        stats.reset(engine.getStrokeCount());
+        if (restoredState != null)
+            restoreState();
         invalidate();
     }
 
     /**
-     * Animates path drawing
+     * Animates path drawing, the helper arrows fade in after the path if they're enabled.
+     * The running animation can be paused, seeked and reversed.
      *
      * @param animationDuration   Animates first drawing if duration is > 0
      * @param animationStartDelay Delays animation's starter
      * @param interpolator        Animation's interpolator
+     * @see #pauseAnimation()
+     * @see #seekAnimation(float)
+     * @see #reverseAnimation()
      */
     public void animate(int animationDuration,
                         int animationStartDelay,
                         @Nullable TimeInterpolator interpolator) {
-        animationProgress = animationDuration > 0 ? 0 : -1;
-        invalidate();
+        ensurePath();
+        if (animationDuration > 0)
+            timeline.start(animationDuration, animationStartDelay, interpolator);
+        else
+            timeline.cancel();
+    }
 
-        if (animator != null && animator.isRunning())
-            animator.cancel();
+    /**
+     * Pauses the running animation at its current frame
+     */
+    public void pauseAnimation() {
+        timeline.pause();
+    }
 
-        if (animationDuration > 0) {
-            animator = ValueAnimator.ofFloat(0.0f, 1.0f);
-            animator.setDuration(animationDuration);
-            animator.setInterpolator(interpolator);
-            animator.setStartDelay(animationStartDelay);
-            animator.addUpdateListener(a -> {
-                animationProgress = (float) a.getAnimatedValue();
-                invalidate();
-            });
-            animator.addListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    super.onAnimationEnd(animation);
-                    if (isHelperArrowsEnabled()) {
-                        animator = ValueAnimator.ofFloat(1.0f, 2.0f);
-                        animator.setDuration(300);
-                        animator.addUpdateListener(a -> {
-                            animationProgress = (float) a.getAnimatedValue();
-                            if (animationProgress > 1.0f && !isHelperArrowsEnabled()) {
-                                animationProgress = -1;
-                                a.cancel();
-                            }
-                            invalidate();
-                        });
-                        animator.addListener(new AnimatorListenerAdapter() {
-                            @Override
-                            public void onAnimationEnd(Animator animation) {
-                                super.onAnimationEnd(animation);
-                                animationProgress = -1;
-                                invalidate();
-                            }
-                        });
-                        animator.start();
-                    } else {
-                        animationProgress = -1;
-                        invalidate();
-                    }
-                }
-            });
-            animator.start();
-        }
+    /**
+     * Resumes the paused animation
+     */
+    public void resumeAnimation() {
+        timeline.resume();
+    }
+
+    /**
+     * Moves the animation to the specified fraction, the animation isn't resumed if it's paused.
+     *
+     * @param fraction fraction of the whole animation, including the fade of the helper arrows
+     */
+    public void seekAnimation(float fraction) {
+        timeline.seek(fraction);
+    }
+
+    /**
+     * Changes the direction of the animation, a paused animation will be resumed.
+     * A reversed animation stops once the path is hidden.
+     */
+    public void reverseAnimation() {
+        timeline.reverse();
+    }
+
+    /**
+     * Ends the animation and shows the whole path
+     */
+    public void cancelAnimation() {
+        timeline.cancel();
+    }
+
+    /**
+     * @return true if the animation is running, false if it's paused or ended
+     */
+    public boolean isAnimationRunning() {
+        return timeline.isRunning();
+    }
+
+    /**
+     * Called by {@link RevealTimeline} on each frame
+     *
+     * @param value reveal progress between 0.0 and 1.0, fade progress between 1.0 and 2.0,
+     *              or -1 if the animation has ended
+     */
+    void onAnimationProgress(float value) {
+        animationProgress = value;
+        invalidate();
     }
 
     /**
@@ -318,48 +838,163 @@ public class AXTouchView extends View {
      * @see #getProgress()
      */
     public void setProgress(float progress) {
-        this.progress = Math.min(Math.max(0, progress), 1);
-        points.clear();
+        ensurePath();
+        engine.setProgress(progress);
+        if (geometry != null)
+            updateTracedPath(tracers[0]);
+        invalidate();
+    }
 
-        float position = 0.0f;
+    /**
+     * Acquires the geometry of the current path with the current step,
+     * the geometry is acquired again only if the step or its mode has changed.
+     * Views with the same path and step share a single geometry, whatever their size is.
+     *
+     * @see PathGeometryCache
+     */
+    private void acquireGeometry() {
+        float step = stepDistance > 0 ? stepDistance : this.step;
+        int mode = getStepMode();
+        if (geometry != null && geometry.matches(step, mode))
+            return;
 
-        do {
-            points.add(getPoint(position));
-            position += step;
-        } while (progress > position);
+        if (metrics != null)
+            metrics.onGeometryCache(source.contains(step, mode));
 
-        if (position - step != progress)
-            points.add(getPoint(progress));
+        PathGeometry old = geometry;
+        geometry = source.acquire(step, mode);
+        path = geometry.path;
+        samples = geometry.samples;
+        for (int i = 0; i < tracerCount; i++)
+            tracers[i].engine.setSamples(samples);
+        buildRenderCache();
 
-        nextPoint = getPoint(progress + step);
-        invalidate();
+        if (old != null)
+            source.release(old);
     }
 
     /**
-     * Sets path and offsets it to the center if needed
+     * Computes the translation which offsets the path to the center of this view,
+     * it's applied at draw and hit-test time so the geometry never changes on a relayout.
      */
-    private void fixPath() {
-        path = new Path(orgPath);
-        if (toCenter) {
-            RectF bound = new RectF();
-            path.computeBounds(bound, true);
-            System.out.println(bound);
-            path.offset((getMeasuredWidth() - bound.right) / 2,
-                    (getMeasuredHeight() - bound.bottom) / 2f);
+    private void updateOffset() {
+        if (toCenter && source != null) {
+            offsetX = (getWidth() - source.bounds.right) / 2;
+            offsetY = (getHeight() - source.bounds.bottom) / 2f;
+        } else {
+            offsetX = offsetY = 0;
         }
-        pathMeasure = new PathMeasure(this.path, false);
+    }
+
+    private void acquireSource() {
+        source = preparedPath != null
+                ? PathGeometryCache.acquire(preparedPath)
+                : PathGeometryCache.acquire(sourcePath);
+        orgPath = source.path;
     }
 
     /**
-     * @return the touched segment of the path
+     * Releases the shared geometry of the current path,
+     * it will be acquired again once it's needed.
+     */
+    private void releasePath() {
+        if (source == null)
+            return;
+
+        if (geometry != null)
+            source.release(geometry);
+        source.release();
+        source = null;
+        geometry = null;
+        path = orgPath = null;
+        samples = null;
+        for (int i = 0; i < tracerCount; i++)
+            tracers[i].engine.setSamples(null);
+    }
+
+    /**
+     * Rebuilds the cached helper arrows and touched segments of the current path.
+     * Shafts of the arrows are combined into a single path and their heads into
+     * a single array of lines, so drawing the helper arrows doesn't compute anything.
+     */
+    private void buildRenderCache() {
+        helpersPath.rewind();
+        arrowHeadsSize = 0;
+        if (helpers != null) {
+            if (arrowHeads.length < helpers.size() * 8)
+                arrowHeads = new float[helpers.size() * 8];
+
+            for (Pair<Float, Float> pair : helpers) {
+                appendSegment(helpersPath, pair.first, pair.second, true);
+                addArrowHead(pair.second);
+            }
+        }
+
+        for (int i = 0; i < tracerCount; i++) {
+            Tracer tracer = tracers[i];
+            tracer.tracedPath.rewind();
+            tracer.tracedProgress = 0;
+            updateTracedPath(tracer);
+        }
+
+        animationPath.rewind();
+        animationPathProgress = 0;
+    }
+
+    /**
+     * Adds the two lines of the head of an arrow which ends at the specified progress
+     */
+    private void addArrowHead(float progress) {
+        samples.getPosition(progress, point);
+        samples.getTangent(progress, tangent);
+
+        float x = point[0], y = point[1];
+        double m = Math.atan2(tangent[1], tangent[0]);
+        for (int side = -1; side <= 1; side += 2) {
+            double angle = m + side * ARROW_HEAD_ANGLE / 2.0;
+            arrowHeads[arrowHeadsSize++] = x;
+            arrowHeads[arrowHeadsSize++] = y;
+            arrowHeads[arrowHeadsSize++] = (float) (x - ARROW_HEAD_LENGTH * Math.cos(angle));
+            arrowHeads[arrowHeadsSize++] = (float) (y - ARROW_HEAD_LENGTH * Math.sin(angle));
+        }
+    }
+
+    /**
+     * Grows the cached touched segment of the tracer up to its progress,
+     * the segment is only rebuilt from the start if the progress went backward.
+     */
+    private void updateTracedPath(Tracer tracer) {
+        float progress = tracer.engine.getProgress();
+        if (progress < tracer.tracedProgress) {
+            tracer.tracedPath.rewind();
+            tracer.tracedProgress = 0;
+        }
+        appendSegment(tracer.tracedPath, tracer.tracedProgress, progress, tracer.tracedPath.isEmpty());
+        tracer.tracedProgress = progress;
+    }
+
+    /**
+     * Appends the segment between start and end to the specified path
+     *
+     * @param startWithMoveTo false to continue the last contour of dst
+     * @see PathGeometry#getSegment(float, float, Path, boolean)
+     */
+    private void appendSegment(Path dst, float start, float end, boolean startWithMoveTo) {
+        geometry.getSegment(start, end, dst, startWithMoveTo);
+    }
+
+    /**
+     * @return the touched segment of the path, in the coordinates of this view
      */
     public Path getSubPath() {
-        return getSubPath(0, progress);
+        ensurePath();
+        return getSubPath(0, engine.getProgress());
     }
 
     private Path getSubPath(float start, float end) {
         Path sub = new Path();
-        pathMeasure.getSegment(start * pathMeasure.getLength(), end * pathMeasure.getLength(), sub, true);
+        appendSegment(sub, start, end, true);
+        sub.offset(offsetX, offsetY);
         return sub;
     }
 
@@ -367,13 +1002,15 @@ public class AXTouchView extends View {
      * @return the total length of the current path.
      */
     public float getPathLength() {
-        return pathMeasure.getLength();
+        ensurePath();
+        return geometry.length;
     }
 
     /**
      * @return path
      */
     public Path getPath() {
+        ensurePath();
         return new Path(orgPath);
     }
 
@@ -387,6 +1024,29 @@ public class AXTouchView extends View {
         this.onTouchViewListener = l;
     }
 
+    /**
+     * @return true if the listener is notified of every step as soon as it happens
+     */
+    public boolean isImmediateProgressUpdates() {
+        return immediateProgressUpdates;
+    }
+
+    /**
+     * Sets whether the listener should be notified of every step as soon as it happens,
+     * disabled by default. When it's enabled, several steps which are taken by the touch samples
+     * of a single batched touch event are notified one by one.
+     * When it's disabled, {@link OnTouchViewListener#onProgressChanged(AXTouchView, float)}
+     * is called once per frame with the latest progress, even if the touch events
+     * arrive faster than the display refreshes. A pending notification is always delivered
+     * before {@link OnTouchViewListener#onStopTrackingTouch(AXTouchView)}.
+     */
+    public void setImmediateProgressUpdates(boolean enabled) {
+        this.immediateProgressUpdates = enabled;
+        if (enabled)
+            flushProgressChanged();
+        updateStepListener();
+    }
+
     /**
      * @return true if the path is touching currently, false otherwise
      */
@@ -402,22 +1062,292 @@ public class AXTouchView extends View {
     }
 
     /**
-     * Sets the step size of this view, 0.01 by default
+     * Sets the step size of this view as a fraction of the total length, 0.01 by default.
+     * Long paths get long steps and short paths get short steps,
+     * use {@link #setStepDistance(float)} to get the same granularity on every path.
      *
      * @param step step size, between 0.0 and 1.0
      */
     public void setStep(float step) {
-        if (step < 0 || step >= 1)
+        if (step <= 0 || step >= 1)
             throw new IllegalArgumentException("the step must be between 0.0 and 1.0");
 
         this.step = step;
+        this.stepDistance = 0;
+        onStepChanged();
+    }
+
+    /**
+     * @return distance between two steps in pixels,
+     * or 0 if the step is a fraction of the total length
+     */
+    public float getStepDistance() {
+        return stepDistance;
+    }
+
+    /**
+     * Sets the distance between two steps in pixels,
+     * so a path gets as many steps as its length needs whatever its length is.
+     *
+     * @param distance step distance in pixels
+     * @see #setStep(float)
+     */
+    public void setStepDistance(float distance) {
+        if (!(distance > 0))
+            throw new IllegalArgumentException("the step distance must be greater than 0");
+
+        this.stepDistance = distance;
+        onStepChanged();
+    }
+
+    /**
+     * Sets the distance between two steps in the specified unit
+     *
+     * @param unit     unit of the distance, such as {@link TypedValue#COMPLEX_UNIT_DIP}
+     * @param distance step distance
+     * @see #setStepDistance(float)
+     */
+    public void setStepDistance(int unit, float distance) {
+        setStepDistance(TypedValue.applyDimension(unit, distance,
+                getResources().getDisplayMetrics()));
+    }
+
+    /**
+     * @return true if steps are placed more densely where the path turns
+     */
+    public boolean isAdaptiveStep() {
+        return adaptiveStep;
+    }
+
+    /**
+     * Sets whether steps should be placed more densely where the path turns, disabled by default.
+     * When it's enabled, the step is the distance between two steps on straight segments
+     * and it's split (up to 8 times) on curves until the path turns less than 10 degrees per step.
+     * So a larger step can be used for the same accuracy on curves,
+     * which means fewer touched points and fewer hit tests.
+     */
+    public void setAdaptiveStep(boolean enabled) {
+        if (adaptiveStep == enabled)
+            return;
+
+        this.adaptiveStep = enabled;
+        onStepChanged();
+    }
+
+    private int getStepMode() {
+        int mode = stepDistance > 0 ? PathSampleTable.STEP_DISTANCE : PathSampleTable.STEP_FRACTION;
+        return adaptiveStep ? mode | PathSampleTable.STEP_ADAPTIVE : mode;
+    }
+
+    /**
+     * Samples the path again with the new step, the progress is kept
+     */
+    private void onStepChanged() {
+        if (source != null) {
+            acquireGeometry();
+            invalidate();
+        }
+    }
+
+    /**
+     * @return true if all of the batched positions of a move event are tracked
+     */
+    public boolean isTouchHistoryEnabled() {
+        return touchHistoryEnabled;
+    }
+
+    /**
+     * Sets whether the historical positions of a move event should be tracked, enabled by default.
+     * When it's enabled, a move event goes through as many steps as its positions are touching
+     * and notifies {@link OnTouchViewListener#onProgressChanged(AXTouchView, float)} once,
+     * otherwise a move event goes at most one step forward.
+     */
+    public void setTouchHistoryEnabled(boolean enabled) {
+        this.touchHistoryEnabled = enabled;
+    }
+
+    /**
+     * @return true if several pointers can trace the path at the same time
+     */
+    public boolean isMultiTouchEnabled() {
+        return multiTouchEnabled;
+    }
+
+    /**
+     * Sets whether several pointers can trace the path at the same time, disabled by default.
+     * <p>
+     * Each pointer traces with its own tracer, which has its own progress and traced segment,
+     * and all of the traced segments are drawn together. A pointer which goes down is taken by
+     * the first free tracer whose touched points it's touching, starting from the primary tracer,
+     * so a pointer can't advance or steal the trace of another pointer.
+     * A tracer keeps its progress once its pointer is up, and up to 4 pointers can trace at once.
+     * <p>
+     * The progress, listener, statistics and saved state of this view are of the primary tracer,
+     * use {@link #getTracerProgress(int)} and {@link OnTracerProgressListener} for the others.
+     * When it's disabled, only the primary tracer is used and the other tracers are reset.
+     */
+    public void setMultiTouchEnabled(boolean enabled) {
+        if (multiTouchEnabled == enabled)
+            return;
+
+        this.multiTouchEnabled = enabled;
+        if (enabled) {
+            createTracers();
+            return;
+        }
+
+        for (int i = 1; i < tracerCount; i++) {
+            Tracer tracer = tracers[i];
+            tracer.pointerId = INVALID_POINTER;
+            tracer.engine.restoreProgress(0.0f);
+            tracer.tracedPath.rewind();
+            tracer.tracedProgress = 0;
+        }
+        if (isTouching && !hasActivePointer())
+            stopTracking();
+        invalidate();
+    }
+
+    /**
+     * Creates the engines of the secondary tracers with the settings of the primary engine,
+     * they're created once and reused.
+     */
+    private void createTracers() {
+        for (int i = tracerCount; i < MAX_TRACERS; i++) {
+            TraceEngine tracerEngine = new TraceEngine();
+            tracerEngine.setTrackingMode(engine.getTrackingMode());
+            tracerEngine.setProjectionWindow(engine.getProjectionWindow());
+            tracerEngine.setSamples(samples);
+            tracers[i] = new Tracer(tracerEngine);
+        }
+        tracerCount = MAX_TRACERS;
+    }
+
+    /**
+     * @return number of tracers, 1 unless multi-touch is enabled
+     * @see #setMultiTouchEnabled(boolean)
+     */
+    public int getTracerCount() {
+        return multiTouchEnabled ? tracerCount : 1;
+    }
+
+    /**
+     * @return progress of the specified tracer, between 0.0 and 1.0. The primary tracer is 0
+     * and its progress is the progress of this view. 0.0 if the tracer is out of range.
+     * @see #setMultiTouchEnabled(boolean)
+     */
+    public float getTracerProgress(int tracer) {
+        if (tracer < 0 || tracer >= getTracerCount())
+            return 0.0f;
+        return tracers[tracer].engine.getProgress();
+    }
+
+    /**
+     * Sets a listener to receive the progress of every tracer once per touch event,
+     * including the primary tracer
+     *
+     * @see #setMultiTouchEnabled(boolean)
+     */
+    public void setOnTracerProgressListener(@Nullable OnTracerProgressListener l) {
+        this.onTracerProgressListener = l;
+    }
+
+    /**
+     * @return {@link #TRACKING_STEPS} or {@link #TRACKING_PROJECTION}
+     */
+    public int getTrackingMode() {
+        return engine.getTrackingMode();
+    }
+
+    /**
+     * Sets how the touch positions move the progress forward, {@link #TRACKING_STEPS} by default.
+     * <p>
+     * {@link #TRACKING_STEPS} only moves forward once the touch position is within
+     * the stroke width of the next step.
+     * {@link #TRACKING_PROJECTION} projects the touch position onto the path ahead of the progress
+     * and jumps to the projected point, so a finger which is slightly off the next step
+     * still moves the progress forward.
+     *
+     * @see #setProjectionWindow(float)
+     */
+    public void setTrackingMode(int trackingMode) {
+        for (int i = 0; i < tracerCount; i++)
+            tracers[i].engine.setTrackingMode(trackingMode);
+    }
+
+    /**
+     * @return how far ahead of the progress a touch position can be projected
+     */
+    public float getProjectionWindow() {
+        return engine.getProjectionWindow();
+    }
+
+    /**
+     * Sets how far ahead of the progress a touch position can be projected
+     * on {@link #TRACKING_PROJECTION} mode, 0.05 by default.
+     * The window keeps the progress from jumping to the parts of the path
+     * which pass near the current position but haven't been traced yet.
+     *
+     * @param window length of the window, between 0.0 and 1.0
+     */
+    public void setProjectionWindow(float window) {
+        for (int i = 0; i < tracerCount; i++)
+            tracers[i].engine.setProjectionWindow(window);
     }
 
     /**
      * @return the current progress, between 0.0 and 1.0
      */
     public float getProgress() {
-        return progress;
+        return engine.getProgress();
+    }
+
+    /**
+     * @return number of strokes (contours) of the path
+     */
+    public int getStrokeCount() {
+        ensurePath();
+        return engine.getStrokeCount();
+    }
+
+    /**
+     * @return index of the stroke which is being traced
+     */
+    public int getCurrentStroke() {
+        ensurePath();
+        return engine.getCurrentStroke();
+    }
+
+    /**
+     * @return progress of the specified stroke, between 0.0 and 1.0.
+     * 0.0 if there is no path or the stroke is out of range.
+     */
+    public float getStrokeProgress(int stroke) {
+        ensurePath();
+        return engine.getStrokeProgress(stroke);
+    }
+
+    /**
+     * @return a snapshot of the statistics of the current tracing session
+     * @see #getTraceStats(TraceStats)
+     */
+    @NonNull
+    public TraceStats getTraceStats() {
+        TraceStats snapshot = new TraceStats();
+        snapshot.set(stats);
+        return snapshot;
+    }
+
+    /**
+     * Copies the statistics of the current tracing session, such as the distance
+     * of the touch from the path, hesitations and backtracks, without allocating.
+     * The statistics are updated while the move events are handled,
+     * so they can be read from {@link OnTouchViewListener} callbacks.
+     *
+     * @param out receives the statistics
+     */
+    public void getTraceStats(@NonNull TraceStats out) {
+        out.set(stats);
     }
 
     /**
@@ -478,6 +1408,9 @@ public class AXTouchView extends View {
      */
     public void setHelperArrows(@NonNull List<Pair<Float, Float>> helpers) {
         this.helpers = helpers;
+        if (geometry != null)
+            buildRenderCache();
+        invalidate();
     }
 
     /**
@@ -493,6 +1426,10 @@ public class AXTouchView extends View {
             helpers.add(Pair.create(start, Math.min(start + len, 1)));
             start += len + gap;
         } while (start < 1);
+
+        if (geometry != null)
+            buildRenderCache();
+        invalidate();
     }
 
     /**
@@ -532,17 +1469,111 @@ public class AXTouchView extends View {
      * Resets path
      */
     public void reset() {
-        if (path == null)
+        if (pathPending) {
+            invalidate();
+            return;
+        }
+        if (sourcePath == null)
             return;
 
-        setPath(orgPath, toCenter);
+        loadPath();
     }
 
     /**
-     * @return current touch position
+     * Sets the metrics which receives the performance counters of this view,
+     * nothing is measured while it's null.
+     *
+     * @param metrics the metrics to update, or null to stop measuring
+     */
+    public void setMetrics(@Nullable TouchViewMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the metrics of this view, or null if it's not measuring
+     */
+    @Nullable
+    public TouchViewMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the recorder which receives the touch samples, steps and listener callbacks
+     * of this view, nothing is recorded while it's null.
+     *
+     * @param recorder the recorder to append to, or null to stop recording
+     * @see TouchReplay
+     */
+    public void setRecorder(@Nullable TouchRecorder recorder) {
+        this.recorder = recorder;
+        updateStepListener();
+    }
+
+    /**
+     * The engine calls the step listener only if there is something to do with the steps
+     */
+    private void updateStepListener() {
+        engine.setListener(recorder != null || immediateProgressUpdates ? stepListener : null);
+    }
+
+    /**
+     * @return the recorder of this view, or null if it's not recording
+     */
+    @Nullable
+    public TouchRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * @return true if this view is on thumbnail mode
+     */
+    public boolean isThumbnailMode() {
+        return thumbnailMode;
+    }
+
+    /**
+     * Sets the thumbnail mode of this view, disabled by default.
+     * On thumbnail mode, the view is not interactive and it's rendered once into a bitmap,
+     * which is shared between all of the views with the same path, size and style.
+     * The path isn't measured until the thumbnail has to be rendered,
+     * so thumbnails are keyed by the identity of the path which has been set;
+     * call {@link #setPath(Path)} with a new Path object if the path has changed.
+     */
+    public void setThumbnailMode(boolean thumbnailMode) {
+        this.thumbnailMode = thumbnailMode;
+        if (!thumbnailMode)
+            ensurePath();
+        invalidate();
+    }
+
+    /**
+     * Removes all of the cached thumbnails
+     *
+     * @see #setThumbnailMode(boolean)
+     */
+    public static void clearThumbnailCache() {
+        ThumbnailCache.clear();
+    }
+
+    /**
+     * @return current touch position, the returned point is reused by the next calls
+     * @see #getCurrentPosition(PointF)
      */
     public PointF getCurrentPosition() {
-        return points.isEmpty() ? null : points.get(points.size() - 1);
+        return getCurrentPosition(currentPosition) ? currentPosition : null;
+    }
+
+    /**
+     * Copies the current touch position to the specified point
+     *
+     * @return false if there is no touched point
+     */
+    public boolean getCurrentPosition(@NonNull PointF out) {
+        if (!engine.getCurrentPosition(point))
+            return false;
+
+        out.set(point[0] + offsetX, point[1] + offsetY);
+        return true;
     }
 
     public Paint getPaint() {
@@ -553,4 +1584,59 @@ public class AXTouchView extends View {
         return helperPaint;
     }
 
+    /**
+     * Compact state of the trace, the path itself isn't saved
+     * and it's only identified by the hash of its samples.
+     */
+    static class SavedState extends BaseSavedState {
+        float progress;
+        float step;
+        float stepDistance;
+        boolean adaptiveStep;
+        int pathHash;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            progress = in.readFloat();
+            step = in.readFloat();
+            stepDistance = in.readFloat();
+            adaptiveStep = in.readInt() != 0;
+            pathHash = in.readInt();
+        }
+
+        void copyFrom(SavedState state) {
+            progress = state.progress;
+            step = state.step;
+            stepDistance = state.stepDistance;
+            adaptiveStep = state.adaptiveStep;
+            pathHash = state.pathHash;
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeFloat(progress);
+            out.writeFloat(step);
+            out.writeFloat(stepDistance);
+            out.writeInt(adaptiveStep ? 1 : 0);
+            out.writeInt(pathHash);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
 }
@@ -20,6 +20,7 @@ public class MainActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        PathData.prefetch();
 
         rv = findViewById(R.id.rv);
         rv.setAdapter(new Adapter());
@@ -72,6 +73,7 @@ public class MainActivity extends AppCompatActivity {
                 super(itemView);
                 touchView = itemView.findViewById(R.id.touch);
                 touchView.setEnabled(false);
+                touchView.setThumbnailMode(true);
             }
         }
     }
@@ -18,8 +18,13 @@ public class PathActivity extends AppCompatActivity {
         AXTouchView touchView = findViewById(R.id.touch);
 
         touchView.setHelperArrowsEnabled(PathData.helperArrowsEnabled);
-        touchView.setPath(PathData.selected);
-        touchView.animate((int) (touchView.getPathLength() / 2f), 500, null);
+        PreparedPath prepared = PathData.getPreparedPath(PathData.selected);
+        if (prepared != null)
+            touchView.setPath(prepared);
+        else
+            touchView.setPath(PathData.selected);
+        if (savedInstanceState == null)
+            touchView.animate((int) (touchView.getPathLength() / 2f), 500, null);
 
         TextView tv = findViewById(R.id.tv);
         touchView.setOnTouchViewListener(new AXTouchView.OnTouchViewListener() {
@@ -5,6 +5,7 @@ import android.graphics.Path;
 public class PathData {
 
     public final static Path[] paths;
+    public final static PreparedPath[] preparedPaths;
     public static Path selected = null;
     public static boolean helperArrowsEnabled = true;
 
@@ -13,6 +14,26 @@ public class PathData {
                 createSimplePathWithArc(),
                 createHeart()
         };
+        preparedPaths = new PreparedPath[paths.length];
+    }
+
+    /**
+     * Prepares all of the paths on a worker thread
+     */
+    public static void prefetch() {
+        for (int i = 0; i < paths.length; i++) {
+            final int index = i;
+            if (preparedPaths[index] == null)
+                PreparedPath.prepareAsync(paths[index], p -> preparedPaths[index] = p);
+        }
+    }
+
+    public static PreparedPath getPreparedPath(Path path) {
+        for (int i = 0; i < paths.length; i++) {
+            if (paths[i] == path)
+                return preparedPaths[i];
+        }
+        return null;
     }
 
     private static Path createSimplePathWithArc() {
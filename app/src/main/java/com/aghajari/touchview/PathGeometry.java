@@ -0,0 +1,154 @@
+package com.aghajari.touchview;
+
+import android.graphics.Path;
+import android.graphics.PathMeasure;
+
+import java.util.Arrays;
+
+/**
+ * Measured geometry of a path: its strokes (contours), their lengths
+ * and the sampled positions of each step. Geometry is always in the coordinates
+ * of the path, views apply their own centering at draw and hit-test time.
+ * Instances are shared between all of the views showing the same path with the same step,
+ * so none of its geometry may be modified after it's been created.
+ *
+ * @see PathGeometryCache
+ */
+final class PathGeometry {
+
+    final Path path;
+    final Path[] strokes;
+    private final PathMeasure[] strokeMeasures;
+    final float length;
+    final float[] contourLengths;
+    final PathSampleTable samples;
+
+    final float step;
+    final int mode;
+    int refCount;
+
+    /**
+     * @param mode step mode of {@link PathSampleTable}
+     */
+    PathGeometry(Path path, float step, int mode) {
+        this.step = step;
+        this.mode = mode;
+        this.path = path;
+
+        // Each contour is a stroke, so they can be measured and sampled on their own
+        PathMeasure measure = new PathMeasure(path, false);
+        Path[] strokes = new Path[1];
+        int count = 0;
+        do {
+            float contourLength = measure.getLength();
+            if (contourLength > 0) {
+                if (count == strokes.length)
+                    strokes = Arrays.copyOf(strokes, count * 2);
+                Path stroke = new Path();
+                measure.getSegment(0, contourLength, stroke, true);
+                strokes[count++] = stroke;
+            }
+        } while (measure.nextContour());
+
+        if (count == 0)
+            strokes[count++] = path;
+        this.strokes = Arrays.copyOf(strokes, count);
+
+        strokeMeasures = new PathMeasure[count];
+        contourLengths = new float[count];
+        PathSampleTable.Stroke[] measures = new PathSampleTable.Stroke[count];
+        float length = 0;
+        for (int i = 0; i < count; i++) {
+            PathMeasure strokeMeasure = new PathMeasure(this.strokes[i], false);
+            strokeMeasures[i] = strokeMeasure;
+            measures[i] = strokeMeasure::getPosTan;
+            contourLengths[i] = strokeMeasure.getLength();
+            length += contourLengths[i];
+        }
+        this.length = length;
+        samples = new PathSampleTable(measures, contourLengths, step, mode);
+    }
+
+    /**
+     * Creates the geometry of a path which has been measured while it was built,
+     * so the path isn't measured again. Contours without any length are skipped.
+     *
+     * @param contours  a path per contour of the path
+     * @param polylines the flattened contours, in the same order
+     * @see PolylineBuilder
+     */
+    PathGeometry(Path path, Path[] contours, Polyline[] polylines, float step, int mode) {
+        this.step = step;
+        this.mode = mode;
+        this.path = path;
+
+        int count = 0;
+        for (Polyline polyline : polylines) {
+            if (polyline.getLength() > 0)
+                count++;
+        }
+
+        if (count == 0) {
+            strokes = new Path[]{path};
+            polylines = new Polyline[]{new Polyline()};
+        } else {
+            strokes = new Path[count];
+            Polyline[] measured = new Polyline[count];
+            count = 0;
+            for (int i = 0; i < polylines.length; i++) {
+                if (polylines[i].getLength() > 0) {
+                    strokes[count] = contours[i];
+                    measured[count++] = polylines[i];
+                }
+            }
+            polylines = measured;
+        }
+
+        // Segments are extracted by PathMeasure, which is created once a segment is needed
+        strokeMeasures = new PathMeasure[strokes.length];
+        contourLengths = new float[strokes.length];
+        float length = 0;
+        for (int i = 0; i < strokes.length; i++) {
+            contourLengths[i] = polylines[i].getLength();
+            length += contourLengths[i];
+        }
+        this.length = length;
+        samples = new PathSampleTable(polylines, contourLengths, step, mode);
+    }
+
+    boolean matches(float step, int mode) {
+        return this.step == step && this.mode == mode;
+    }
+
+    /**
+     * Appends the segment between two progresses of the whole path to the specified path,
+     * each stroke of the segment starts with a new contour.
+     *
+     * @param startWithMoveTo false to continue the last contour of dst,
+     *                        if start isn't the beginning of a stroke
+     */
+    void getSegment(float start, float end, Path dst, boolean startWithMoveTo) {
+        if (end <= start)
+            return;
+
+        for (int i = 0; i < strokes.length; i++) {
+            float strokeStart = samples.getStrokeStart(i);
+            float strokeEnd = samples.getStrokeEnd(i);
+            if (strokeEnd <= start || strokeStart >= end)
+                continue;
+
+            float from = Math.max(start, strokeStart), to = Math.min(end, strokeEnd);
+            // The end of a stroke is clamped by PathMeasure, in case the stroke has been measured by a Polyline
+            float stopD = to == strokeEnd ? Float.MAX_VALUE : (to - strokeStart) * length;
+            getStrokeMeasure(i).getSegment((from - strokeStart) * length, stopD,
+                    dst, startWithMoveTo || from == strokeStart);
+            startWithMoveTo = true;
+        }
+    }
+
+    private PathMeasure getStrokeMeasure(int stroke) {
+        if (strokeMeasures[stroke] == null)
+            strokeMeasures[stroke] = new PathMeasure(strokes[stroke], false);
+        return strokeMeasures[stroke];
+    }
+}
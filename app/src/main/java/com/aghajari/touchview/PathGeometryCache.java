@@ -0,0 +1,125 @@
+package com.aghajari.touchview;
+
+import android.graphics.Path;
+import android.graphics.RectF;
+
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+/**
+ * Process-wide, reference counted cache of measured paths.
+ * Views showing the same Path object share one copy of it and its bounds,
+ * and views with the same step and step mode share one {@link PathGeometry}.
+ * An entry is evicted as soon as no view references it anymore.
+ * <p>
+ * Sources are only held weakly, so a view which never releases its path,
+ * such as a view which is never attached to a window, doesn't keep the path
+ * and its geometry alive once the view itself is unreachable.
+ * Path doesn't override equals, so the weak keys are compared by identity.
+ */
+final class PathGeometryCache {
+
+    private static final WeakHashMap<Path, WeakReference<Source>> sources = new WeakHashMap<>();
+
+    private PathGeometryCache() {
+    }
+
+    /**
+     * @return the shared source of the specified path,
+     * it must be released by {@link Source#release()}
+     */
+    static Source acquire(Path path) {
+        Source source = get(path);
+        if (source == null) {
+            source = new Source(path, new Path(path), null);
+            sources.put(path, new WeakReference<>(source));
+        }
+        source.refCount++;
+        return source;
+    }
+
+    /**
+     * @return the shared source of the prepared path, the prepared geometry
+     * will be used if the path isn't already in the cache.
+     * @see #acquire(Path)
+     */
+    static Source acquire(PreparedPath prepared) {
+        Source source = get(prepared.source);
+        if (source == null) {
+            source = new Source(prepared.source, prepared.path, prepared.geometry);
+            sources.put(prepared.source, new WeakReference<>(source));
+        }
+        source.refCount++;
+        return source;
+    }
+
+    @Nullable
+    private static Source get(Path path) {
+        WeakReference<Source> reference = sources.get(path);
+        return reference == null ? null : reference.get();
+    }
+
+    static final class Source {
+        private final Path key;
+        final Path path;
+        final RectF bounds = new RectF();
+
+        private int refCount;
+        private final ArrayList<PathGeometry> geometries = new ArrayList<>(1);
+
+        private Source(Path key, Path path, @Nullable PathGeometry geometry) {
+            this.key = key;
+            this.path = path;
+            path.computeBounds(bounds, true);
+            if (geometry != null)
+                geometries.add(geometry);
+        }
+
+        boolean isSourceOf(Path path) {
+            return key == path;
+        }
+
+        /**
+         * @return true if there is a geometry with the specified step and mode
+         */
+        boolean contains(float step, int mode) {
+            return find(step, mode) != null;
+        }
+
+        /**
+         * @return the shared geometry of this path with the specified step and mode,
+         * it must be released by {@link #release(PathGeometry)}
+         * @see PathSampleTable#STEP_DISTANCE
+         */
+        PathGeometry acquire(float step, int mode) {
+            PathGeometry geometry = find(step, mode);
+            if (geometry == null) {
+                geometry = new PathGeometry(path, step, mode);
+                geometries.add(geometry);
+            }
+            geometry.refCount++;
+            return geometry;
+        }
+
+        private PathGeometry find(float step, int mode) {
+            for (int i = 0; i < geometries.size(); i++) {
+                if (geometries.get(i).matches(step, mode))
+                    return geometries.get(i);
+            }
+            return null;
+        }
+
+        void release(PathGeometry geometry) {
+            if (--geometry.refCount <= 0)
+                geometries.remove(geometry);
+        }
+
+        void release() {
+            if (--refCount == 0 && get(key) == this)
+                sources.remove(key);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.aghajari.touchview;
+
+import java.util.Arrays;
+
+/**
+ * Position and tangent of the strokes of a measured path, sampled once at every step.
+ * Samples are stops of the progress over the total length of all strokes,
+ * each stroke starts with a new stop at the same progress the previous stroke ended.
+ * Lookups between two samples are linearly interpolated, so tracing and
+ * drawing never have to call {@code PathMeasure.getPosTan} or allocate.
+ * <p>
+ * Strokes are only accessed through {@link Stroke}, so the table doesn't depend on Android.
+ */
+final class PathSampleTable {
+
+    /**
+     * A measured stroke, such as a {@code PathMeasure} or a {@link Polyline}
+     */
+    interface Stroke {
+        /**
+         * Computes the position and unit tangent at the specified distance along the stroke
+         */
+        void getPosTan(float distance, float[] pos, float[] tan);
+    }
+
+    /**
+     * The step is a fraction of the total length
+     */
+    static final int STEP_FRACTION = 0;
+    /**
+     * The step is a distance in pixels, measured along each stroke
+     */
+    static final int STEP_DISTANCE = 1;
+    /**
+     * Flag which places stops more densely where the stroke turns,
+     * the step is the distance between stops on straight segments.
+     */
+    static final int STEP_ADAPTIVE = 2;
+
+    /**
+     * Maximum turn of the tangent between two stops of an adaptive step, in radians
+     */
+    private static final double ADAPTIVE_MAX_TURN = Math.toRadians(10);
+    /**
+     * An adaptive step is never split into more than this many parts
+     */
+    private static final int ADAPTIVE_MAX_SPLIT = 8;
+
+    private final float step;
+    private final int count;
+    private final float[] stops;
+    private final float[] positions;
+    private final float[] tangents;
+    private final int[] strokeStarts;
+    private final SegmentTree segmentTree;
+    private int contentHash;
+    private boolean contentHashed;
+
+    /**
+     * @param strokes measures of each stroke
+     * @param lengths length of each stroke
+     * @param step    step size, a fraction of the total length or a distance in pixels
+     * @param mode    {@link #STEP_FRACTION} or {@link #STEP_DISTANCE},
+     *                optionally combined with {@link #STEP_ADAPTIVE}
+     */
+    PathSampleTable(Stroke[] strokes, float[] lengths, float step, int mode) {
+        this.step = step > 0 ? step : 1.0f;
+
+        float length = 0;
+        for (float l : lengths)
+            length += l;
+
+        // Distance between two stops in pixels
+        float spacing = (mode & STEP_DISTANCE) != 0 ? this.step : this.step * length;
+        if (!(spacing > 0))
+            spacing = Float.MAX_VALUE;
+
+        int capacity = strokes.length;
+        for (float l : lengths)
+            capacity += (int) Math.min(Math.ceil(l / spacing) + 1, 1 << 16);
+
+        float[] stops = new float[capacity];
+        float[] positions = new float[capacity * 2];
+        float[] tangents = new float[capacity * 2];
+        strokeStarts = new int[strokes.length + 1];
+
+        float[] pos = new float[2];
+        float[] tan = new float[2];
+        float[] tmp = new float[2];
+        float start = 0;
+        int index = 0;
+        for (int s = 0; s < strokes.length; s++) {
+            strokeStarts[s] = index;
+            float end = s == strokes.length - 1 ? 1.0f
+                    : (length > 0 ? start + lengths[s] / length : start);
+
+            float d = 0;
+            while (true) {
+                if (index == stops.length) {
+                    stops = Arrays.copyOf(stops, index * 2);
+                    positions = Arrays.copyOf(positions, index * 4);
+                    tangents = Arrays.copyOf(tangents, index * 4);
+                }
+
+                boolean last = d >= lengths[s];
+                strokes[s].getPosTan(Math.min(d, lengths[s]), pos, tan);
+                stops[index] = last ? end : Math.min(start + d / length, end);
+                positions[index * 2] = pos[0];
+                positions[index * 2 + 1] = pos[1];
+                tangents[index * 2] = tan[0];
+                tangents[index * 2 + 1] = tan[1];
+                index++;
+
+                if (last)
+                    break;
+
+                float h = spacing;
+                if ((mode & STEP_ADAPTIVE) != 0)
+                    h = adaptiveSpacing(strokes[s], lengths[s], d, spacing, tan, pos, tmp);
+                d = Math.min(d + h, lengths[s]);
+            }
+            start = end;
+        }
+
+        strokeStarts[strokes.length] = index;
+        this.count = index;
+        this.stops = stops;
+        this.positions = positions;
+        this.tangents = tangents;
+        // Built with the stops, so the first touch doesn't build it on the UI thread
+        this.segmentTree = new SegmentTree(this);
+    }
+
+    /**
+     * Halves the spacing until the stroke turns less than {@link #ADAPTIVE_MAX_TURN}
+     * between two stops, or it has been split {@link #ADAPTIVE_MAX_SPLIT} times.
+     * The middle of the step is checked too, so a curve which turns back doesn't pass.
+     *
+     * @param tan tangent at d
+     * @param pos receives the positions of the lookups
+     * @param t   receives the tangents of the lookups
+     */
+    private static float adaptiveSpacing(Stroke stroke, float length, float d, float spacing,
+                                         float[] tan, float[] pos, float[] t) {
+        float tx = tan[0], ty = tan[1];
+        float min = spacing / ADAPTIVE_MAX_SPLIT;
+
+        float h = Math.min(spacing, length - d);
+        while (h > min) {
+            stroke.getPosTan(d + h / 2, pos, t);
+            float mx = t[0], my = t[1];
+            stroke.getPosTan(d + h, pos, t);
+            if (turn(tx, ty, mx, my) <= ADAPTIVE_MAX_TURN && turn(mx, my, t[0], t[1]) <= ADAPTIVE_MAX_TURN)
+                break;
+            h /= 2;
+        }
+        return Math.max(h, min);
+    }
+
+    /**
+     * @return the angle between two tangents, in radians
+     */
+    private static double turn(float x1, float y1, float x2, float y2) {
+        return Math.abs(Math.atan2(x1 * y2 - y1 * x2, x1 * x2 + y1 * y2));
+    }
+
+    /**
+     * @return the step this table was sampled with
+     */
+    float getStep() {
+        return step;
+    }
+
+    /**
+     * @return number of stops
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * @return progress of the specified stop
+     */
+    float getProgress(int index) {
+        return stops[index];
+    }
+
+    /**
+     * Copies the position of the specified stop
+     */
+    void getPosition(int index, float[] out) {
+        out[0] = positions[index * 2];
+        out[1] = positions[index * 2 + 1];
+    }
+
+    /**
+     * @return x of the specified stop
+     */
+    float getX(int index) {
+        return positions[index * 2];
+    }
+
+    /**
+     * @return y of the specified stop
+     */
+    float getY(int index) {
+        return positions[index * 2 + 1];
+    }
+
+    /**
+     * @return true if the specified stop is the first stop of a stroke except the first one
+     */
+    boolean isStrokeStart(int index) {
+        for (int s = 1; s < strokeStarts.length - 1; s++) {
+            if (strokeStarts[s] == index)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return number of strokes
+     */
+    int getStrokeCount() {
+        return strokeStarts.length - 1;
+    }
+
+    /**
+     * @return progress of the start of the specified stroke
+     */
+    float getStrokeStart(int stroke) {
+        return stops[strokeStarts[stroke]];
+    }
+
+    /**
+     * @return progress of the end of the specified stroke
+     */
+    float getStrokeEnd(int stroke) {
+        return stops[strokeStarts[stroke + 1] - 1];
+    }
+
+    /**
+     * @return the stroke of the specified stop
+     */
+    int getStroke(int index) {
+        int stroke = 0;
+        while (stroke < strokeStarts.length - 2 && strokeStarts[stroke + 1] <= index)
+            stroke++;
+        return stroke;
+    }
+
+    /**
+     * Computes the position at the specified progress
+     *
+     * @param out receives x and y
+     */
+    void getPosition(float progress, float[] out) {
+        interpolate(positions, progress, out);
+    }
+
+    /**
+     * Computes the (non-normalized) tangent at the specified progress
+     *
+     * @param out receives x and y of the tangent vector
+     */
+    void getTangent(float progress, float[] out) {
+        interpolate(tangents, progress, out);
+    }
+
+    /**
+     * @return index of the first stop which is at or after the specified progress,
+     * the end of a stroke comes before the start of the next one.
+     */
+    int ceilIndex(float progress) {
+        int low = 0, high = count - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (stops[mid] < progress)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @return hash of the strokes and the progress and position of every stop,
+     * two tables of the same path sampled with the same step have the same hash.
+     * It's computed on the first call.
+     */
+    int getContentHash() {
+        if (!contentHashed) {
+            int hash = count;
+            hash = 31 * hash + getStrokeCount();
+            for (int s = 0; s < strokeStarts.length; s++)
+                hash = 31 * hash + strokeStarts[s];
+            for (int i = 0; i < count; i++) {
+                hash = 31 * hash + Float.floatToIntBits(stops[i]);
+                hash = 31 * hash + Float.floatToIntBits(positions[i * 2]);
+                hash = 31 * hash + Float.floatToIntBits(positions[i * 2 + 1]);
+            }
+            contentHash = hash;
+            contentHashed = true;
+        }
+        return contentHash;
+    }
+
+    /**
+     * @return the segment tree of the stops, it's built along with the table
+     */
+    SegmentTree getSegmentTree() {
+        return segmentTree;
+    }
+
+    private void interpolate(float[] values, float progress, float[] out) {
+        int index = ceilIndex(progress);
+
+        float fraction = 1;
+        if (index > 0 && stops[index] > progress) {
+            float start = stops[index - 1];
+            float range = stops[index] - start;
+            if (range > 0)
+                fraction = Math.min(Math.max(0.0f, (progress - start) / range), 1.0f);
+        }
+
+        int i = index * 2;
+        if (fraction == 1) {
+            out[0] = values[i];
+            out[1] = values[i + 1];
+        } else {
+            out[0] = values[i - 2] + (values[i] - values[i - 2]) * fraction;
+            out[1] = values[i - 1] + (values[i + 1] - values[i - 1]) * fraction;
+        }
+    }
+}
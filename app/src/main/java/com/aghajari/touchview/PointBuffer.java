@@ -0,0 +1,66 @@
+package com.aghajari.touchview;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of points backed by a single float array.
+ * Clearing keeps the allocated storage, so refilling it doesn't allocate.
+ */
+final class PointBuffer {
+
+    private float[] coords;
+    private int size;
+
+    PointBuffer() {
+        this(64);
+    }
+
+    PointBuffer(int initialCapacity) {
+        coords = new float[Math.max(initialCapacity, 1) * 2];
+    }
+
+    /**
+     * @return the number of points
+     */
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    float getX(int index) {
+        return coords[index * 2];
+    }
+
+    float getY(int index) {
+        return coords[index * 2 + 1];
+    }
+
+    /**
+     * Appends a point, the storage grows by doubling when it's full
+     */
+    void add(float x, float y) {
+        if (size * 2 == coords.length)
+            coords = Arrays.copyOf(coords, coords.length * 2);
+
+        coords[size * 2] = x;
+        coords[size * 2 + 1] = y;
+        size++;
+    }
+
+    /**
+     * Removes the points after the specified size
+     */
+    void truncate(int size) {
+        this.size = Math.min(this.size, size);
+    }
+
+    /**
+     * Removes all points without releasing the storage
+     */
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,173 @@
+package com.aghajari.touchview;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the points of a {@link PointBuffer} used for hit testing,
+ * the cell size is kept equal to the touch radius so a hit test only has to
+ * visit the 3x3 cells around the touch position, no matter how many points
+ * have been added.
+ */
+final class PointGrid {
+
+    private static final int EMPTY = -1;
+
+    private float cellSize = 1.0f;
+
+    private final PointBuffer points;
+    private int[] next = new int[32];
+
+    private long[] keys = new long[64];
+    private int[] heads = new int[64];
+    private boolean[] used = new boolean[64];
+    private int cells;
+    private int candidates;
+
+    PointGrid(PointBuffer points) {
+        this.points = points;
+        Arrays.fill(heads, EMPTY);
+    }
+
+    /**
+     * Sets the cell size, all points will be indexed again if it has changed.
+     */
+    void setCellSize(float cellSize) {
+        cellSize = Math.max(cellSize, 1.0f);
+        if (this.cellSize == cellSize)
+            return;
+
+        this.cellSize = cellSize;
+        clearCells();
+        for (int i = 0; i < points.size(); i++)
+            link(i);
+    }
+
+    /**
+     * Adds a point to the buffer and the grid
+     */
+    void add(float x, float y) {
+        points.add(x, y);
+        link(points.size() - 1);
+    }
+
+    /**
+     * Removes the points after the specified size, points are unlinked from the last one
+     * so each of them is the head of its cell at the time it's removed.
+     */
+    void truncate(int size) {
+        for (int i = points.size() - 1; i >= size; i--) {
+            int slot = findSlot(key(cellOf(points.getX(i)), cellOf(points.getY(i))));
+            heads[slot] = next[i];
+        }
+        points.truncate(size);
+    }
+
+    /**
+     * Removes all points, the allocated storage will be reused.
+     */
+    void clear() {
+        points.clear();
+        clearCells();
+    }
+
+    /**
+     * @return true if there is a point within the specified radius of (x, y)
+     */
+    boolean containsWithin(float x, float y, float radius) {
+        candidates = 0;
+        if (points.isEmpty())
+            return false;
+
+        setCellSize(Math.max(radius, cellSize));
+        float radius2 = radius * radius;
+        int cx = cellOf(x), cy = cellOf(y);
+
+        for (int i = cx - 1; i <= cx + 1; i++) {
+            for (int j = cy - 1; j <= cy + 1; j++) {
+                int slot = findSlot(key(i, j));
+                if (!used[slot])
+                    continue;
+
+                for (int p = heads[slot]; p != EMPTY; p = next[p]) {
+                    candidates++;
+                    float dx = x - points.getX(p), dy = y - points.getY(p);
+                    if (dx * dx + dy * dy <= radius2)
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of points checked by the last hit test
+     */
+    int getLastCandidates() {
+        return candidates;
+    }
+
+    private void link(int index) {
+        if ((cells + 1) * 2 > keys.length)
+            rehash(keys.length * 2);
+
+        if (index >= next.length)
+            next = Arrays.copyOf(next, Math.max(next.length * 2, index + 1));
+
+        long key = key(cellOf(points.getX(index)), cellOf(points.getY(index)));
+        int slot = findSlot(key);
+        if (!used[slot]) {
+            used[slot] = true;
+            keys[slot] = key;
+            heads[slot] = EMPTY;
+            cells++;
+        }
+        next[index] = heads[slot];
+        heads[slot] = index;
+    }
+
+    private void clearCells() {
+        Arrays.fill(used, false);
+        Arrays.fill(heads, EMPTY);
+        cells = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        boolean[] oldUsed = used;
+
+        keys = new long[capacity];
+        heads = new int[capacity];
+        used = new boolean[capacity];
+        Arrays.fill(heads, EMPTY);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = findSlot(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    /**
+     * @return the slot of the key, or the empty slot it should be inserted at
+     */
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (used[slot] && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private int cellOf(float v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
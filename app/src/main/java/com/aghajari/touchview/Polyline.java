@@ -0,0 +1,105 @@
+package com.aghajari.touchview;
+
+import java.util.Arrays;
+
+/**
+ * A flattened contour: its points and the arc length at each of them.
+ * It measures a stroke without Android, positions between two points are
+ * linearly interpolated.
+ */
+final class Polyline implements PathSampleTable.Stroke {
+
+    private float[] points = new float[16];
+    private float[] distances = new float[8];
+    private int count;
+
+    /**
+     * Appends a point, a point equal to the last one is ignored.
+     */
+    void add(float x, float y) {
+        if (count > 0 && points[count * 2 - 2] == x && points[count * 2 - 1] == y)
+            return;
+
+        if (count == distances.length) {
+            points = Arrays.copyOf(points, count * 4);
+            distances = Arrays.copyOf(distances, count * 2);
+        }
+
+        float distance = 0;
+        if (count > 0) {
+            float dx = x - points[count * 2 - 2], dy = y - points[count * 2 - 1];
+            distance = distances[count - 1] + (float) Math.sqrt(dx * dx + dy * dy);
+        }
+        points[count * 2] = x;
+        points[count * 2 + 1] = y;
+        distances[count] = distance;
+        count++;
+    }
+
+    /**
+     * @return number of points
+     */
+    int size() {
+        return count;
+    }
+
+    float getX(int index) {
+        return points[index * 2];
+    }
+
+    float getY(int index) {
+        return points[index * 2 + 1];
+    }
+
+    /**
+     * @return the last point's x, or 0 if it's empty
+     */
+    float getLastX() {
+        return count == 0 ? 0 : points[count * 2 - 2];
+    }
+
+    /**
+     * @return the last point's y, or 0 if it's empty
+     */
+    float getLastY() {
+        return count == 0 ? 0 : points[count * 2 - 1];
+    }
+
+    float getLength() {
+        return count == 0 ? 0 : distances[count - 1];
+    }
+
+    @Override
+    public void getPosTan(float distance, float[] pos, float[] tan) {
+        if (count < 2) {
+            pos[0] = getLastX();
+            pos[1] = getLastY();
+            if (tan != null) {
+                tan[0] = 1;
+                tan[1] = 0;
+            }
+            return;
+        }
+
+        distance = Math.min(Math.max(distance, 0), getLength());
+        int low = 1, high = count - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (distances[mid] < distance)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        int i = low * 2;
+        float dx = points[i] - points[i - 2], dy = points[i + 1] - points[i - 1];
+        float range = distances[low] - distances[low - 1];
+        float fraction = range > 0 ? (distance - distances[low - 1]) / range : 1;
+        pos[0] = points[i - 2] + dx * fraction;
+        pos[1] = points[i - 1] + dy * fraction;
+        if (tan != null) {
+            tan[0] = range > 0 ? dx / range : 1;
+            tan[1] = range > 0 ? dy / range : 0;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.aghajari.touchview;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * Flattens the curves of a path into a {@link Polyline} per contour,
+ * each contour starts with a move. Curves are split into as many lines as they need to
+ * stay within the flatness tolerance of the curve.
+ * <p>
+ * Commands can be forwarded to another handler, so a path can be built
+ * and measured at the same time.
+ */
+final class PolylineBuilder implements SvgPathParser.Handler {
+
+    /**
+     * Maximum distance between a curve and its lines, in pixels
+     */
+    static final float DEFAULT_TOLERANCE = 0.25f;
+    private static final int MAX_SEGMENTS = 1024;
+
+    private final SvgPathParser.Handler delegate;
+    private final float tolerance;
+    private final ArrayList<Polyline> contours = new ArrayList<>();
+    private Polyline contour;
+    private float startX, startY;
+
+    PolylineBuilder(@Nullable SvgPathParser.Handler delegate) {
+        this(delegate, DEFAULT_TOLERANCE);
+    }
+
+    PolylineBuilder(@Nullable SvgPathParser.Handler delegate, float tolerance) {
+        this.delegate = delegate;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @return the contours of the path, a contour is empty if it doesn't have any segment
+     */
+    Polyline[] getContours() {
+        return contours.toArray(new Polyline[0]);
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        contour = new Polyline();
+        contour.add(x, y);
+        contours.add(contour);
+        startX = x;
+        startY = y;
+        if (delegate != null)
+            delegate.moveTo(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        ensureContour();
+        contour.add(x, y);
+        if (delegate != null)
+            delegate.lineTo(x, y);
+    }
+
+    @Override
+    public void quadTo(float x1, float y1, float x2, float y2) {
+        ensureContour();
+        float x0 = contour.getLastX(), y0 = contour.getLastY();
+        float ddx = x0 - 2 * x1 + x2, ddy = y0 - 2 * y1 + y2;
+        int segments = segments(0.25f * (float) Math.sqrt(ddx * ddx + ddy * ddy));
+
+        for (int i = 1; i < segments; i++) {
+            float t = (float) i / segments, u = 1 - t;
+            contour.add(u * u * x0 + 2 * u * t * x1 + t * t * x2,
+                    u * u * y0 + 2 * u * t * y1 + t * t * y2);
+        }
+        contour.add(x2, y2);
+        if (delegate != null)
+            delegate.quadTo(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        ensureContour();
+        float x0 = contour.getLastX(), y0 = contour.getLastY();
+        float ddx1 = x0 - 2 * x1 + x2, ddy1 = y0 - 2 * y1 + y2;
+        float ddx2 = x1 - 2 * x2 + x3, ddy2 = y1 - 2 * y2 + y3;
+        float dd = (float) Math.sqrt(Math.max(ddx1 * ddx1 + ddy1 * ddy1, ddx2 * ddx2 + ddy2 * ddy2));
+        int segments = segments(0.75f * dd);
+
+        for (int i = 1; i < segments; i++) {
+            float t = (float) i / segments, u = 1 - t;
+            float a = u * u * u, b = 3 * u * u * t, c = 3 * u * t * t, d = t * t * t;
+            contour.add(a * x0 + b * x1 + c * x2 + d * x3, a * y0 + b * y1 + c * y2 + d * y3);
+        }
+        contour.add(x3, y3);
+        if (delegate != null)
+            delegate.cubicTo(x1, y1, x2, y2, x3, y3);
+    }
+
+    @Override
+    public void close() {
+        if (contour != null)
+            contour.add(startX, startY);
+        if (delegate != null)
+            delegate.close();
+    }
+
+    /**
+     * Wang's formula, the number of lines which keeps a curve within the tolerance
+     *
+     * @param deviation degree * (degree - 1) / 8 times the largest second difference of the curve
+     */
+    private int segments(float deviation) {
+        int segments = (int) Math.ceil(Math.sqrt(deviation / tolerance));
+        return Math.min(Math.max(segments, 1), MAX_SEGMENTS);
+    }
+
+    private void ensureContour() {
+        if (contour == null)
+            moveTo(0, 0);
+    }
+}
@@ -0,0 +1,210 @@
+package com.aghajari.touchview;
+
+import android.graphics.Path;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An immutable, measured and sampled path which can be prepared on a worker thread
+ * and adopted by {@link AXTouchView#setPath(PreparedPath)} on the main thread.
+ * Prepared paths can be prefetched before the screen opens, so setting them
+ * doesn't measure the path on the UI thread.
+ */
+public final class PreparedPath {
+
+    private static ExecutorService defaultExecutor;
+    private static Handler mainHandler;
+
+    final Path source;
+    final Path path;
+    final PathGeometry geometry;
+
+    public interface Callback {
+        void onPathPrepared(@NonNull PreparedPath path);
+    }
+
+    private PreparedPath(Path source, float step) {
+        this.source = source;
+        this.path = new Path(source);
+        this.geometry = new PathGeometry(path, step, PathSampleTable.STEP_FRACTION);
+    }
+
+    private PreparedPath(PathBuilder builder, PolylineBuilder polylines, float step) {
+        this.source = builder.path;
+        this.path = builder.path;
+        this.geometry = new PathGeometry(path, builder.contours.toArray(new Path[0]),
+                polylines.getContours(), step, PathSampleTable.STEP_FRACTION);
+    }
+
+    /**
+     * Measures and samples the path on the current thread.
+     * The path must not be modified after it has been prepared.
+     *
+     * @param path the path to prepare
+     * @param step step size, between 0.0 and 1.0
+     */
+    @WorkerThread
+    @NonNull
+    public static PreparedPath prepare(@NonNull Path path, float step) {
+        checkStep(step);
+        return new PreparedPath(path, step);
+    }
+
+    /**
+     * Parses SVG path data into a prepared path on the current thread.
+     * The path is built and measured in a single pass, so it isn't measured again.
+     * The returned {@link #getPath()} must not be modified.
+     *
+     * @param pathData the {@code d} attribute of an SVG path element
+     * @param step     step size, between 0.0 and 1.0
+     * @throws IllegalArgumentException if the path data is invalid
+     * @see SvgPathParser
+     */
+    @WorkerThread
+    @NonNull
+    public static PreparedPath parseSvg(@NonNull CharSequence pathData, float step) {
+        checkStep(step);
+        PathBuilder builder = new PathBuilder();
+        PolylineBuilder polylines = new PolylineBuilder(builder);
+        SvgPathParser.parse(pathData, polylines);
+        return new PreparedPath(builder, polylines, step);
+    }
+
+    /**
+     * Parses SVG path data from a reader into a prepared path on the current thread,
+     * the reader isn't closed.
+     *
+     * @see #parseSvg(CharSequence, float)
+     */
+    @WorkerThread
+    @NonNull
+    public static PreparedPath parseSvg(@NonNull Reader pathData, float step) throws IOException {
+        checkStep(step);
+        PathBuilder builder = new PathBuilder();
+        PolylineBuilder polylines = new PolylineBuilder(builder);
+        SvgPathParser.parse(pathData, polylines);
+        return new PreparedPath(builder, polylines, step);
+    }
+
+    private static void checkStep(float step) {
+        if (step <= 0 || step >= 1)
+            throw new IllegalArgumentException("the step must be between 0.0 and 1.0");
+    }
+
+    /**
+     * Prepares the path with the default step on a shared worker thread
+     *
+     * @see #prepareAsync(Path, float, Executor, Callback)
+     */
+    public static void prepareAsync(@NonNull Path path, @NonNull Callback callback) {
+        prepareAsync(path, AXTouchView.DEFAULT_STEP, getDefaultExecutor(), callback);
+    }
+
+    /**
+     * Prepares the path on the specified executor,
+     * the callback will be invoked on the main thread.
+     *
+     * @param path     the path to prepare
+     * @param step     step size, between 0.0 and 1.0
+     * @param executor the executor to measure the path on
+     * @param callback receives the prepared path on the main thread
+     */
+    public static void prepareAsync(@NonNull Path path, float step,
+                                    @NonNull Executor executor, @NonNull Callback callback) {
+        executor.execute(() -> {
+            PreparedPath prepared = prepare(path, step);
+            getMainHandler().post(() -> callback.onPathPrepared(prepared));
+        });
+    }
+
+    /**
+     * @return the path which has been prepared
+     */
+    @NonNull
+    public Path getPath() {
+        return source;
+    }
+
+    /**
+     * @return the step which the path has been sampled with
+     */
+    public float getStep() {
+        return geometry.step;
+    }
+
+    /**
+     * @return the total length of the path
+     */
+    public float getLength() {
+        return geometry.length;
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "PreparedPath");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultExecutor;
+    }
+
+    private static synchronized Handler getMainHandler() {
+        if (mainHandler == null)
+            mainHandler = new Handler(Looper.getMainLooper());
+        return mainHandler;
+    }
+
+    /**
+     * Builds the path and a path per contour of it
+     */
+    private static final class PathBuilder implements SvgPathParser.Handler {
+        final Path path = new Path();
+        final ArrayList<Path> contours = new ArrayList<>();
+        private Path contour;
+
+        @Override
+        public void moveTo(float x, float y) {
+            path.moveTo(x, y);
+            contour = new Path();
+            contour.moveTo(x, y);
+            contours.add(contour);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            path.lineTo(x, y);
+            contour.lineTo(x, y);
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            path.quadTo(x1, y1, x2, y2);
+            contour.quadTo(x1, y1, x2, y2);
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            path.cubicTo(x1, y1, x2, y2, x3, y3);
+            contour.cubicTo(x1, y1, x2, y2, x3, y3);
+        }
+
+        @Override
+        public void close() {
+            path.close();
+            if (contour != null)
+                contour.close();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.aghajari.touchview;
+
+import android.animation.TimeInterpolator;
+import android.animation.ValueAnimator;
+import android.os.Build;
+import android.provider.Settings;
+import android.view.Choreographer;
+
+/**
+ * The intro animation of an {@link AXTouchView}: the path is revealed from 0.0 to 1.0,
+ * then the helper arrows fade in from 1.0 to 2.0 if they're enabled.
+ * Both phases are driven by a single frame callback which is reused by every run,
+ * so a running animation doesn't allocate. It can be paused, seeked and reversed.
+ * Like an animator, it follows the animator duration scale of the system
+ * and it jumps to the end when animators are disabled.
+ */
+final class RevealTimeline implements Choreographer.FrameCallback {
+
+    static final long FADE_DURATION = 300;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final AXTouchView view;
+
+    private long revealNanos, fadeNanos = FADE_DURATION * NANOS_PER_MILLI;
+    private TimeInterpolator interpolator;
+
+    // Play time is negative while the start delay hasn't passed
+    private long playNanos;
+    private long lastFrameNanos;
+    private float durationScale = 1.0f;
+    private boolean started, running, reversed;
+
+    RevealTimeline(AXTouchView view) {
+        this.view = view;
+    }
+
+    /**
+     * Starts a new run from the beginning, the current run is cancelled.
+     */
+    void start(long duration, long startDelay, TimeInterpolator interpolator) {
+        stopFrames();
+        this.revealNanos = duration * NANOS_PER_MILLI;
+        this.interpolator = interpolator;
+        this.playNanos = -startDelay * NANOS_PER_MILLI;
+        this.reversed = false;
+        started = true;
+        durationScale = readDurationScale();
+        if (durationScale == 0) {
+            playNanos = getTotalNanos();
+            apply();
+            return;
+        }
+        apply();
+        resume();
+    }
+
+    void pause() {
+        stopFrames();
+    }
+
+    void resume() {
+        if (!started || running)
+            return;
+
+        durationScale = readDurationScale();
+        if (durationScale == 0) {
+            playNanos = reversed ? 0 : getTotalNanos();
+            apply();
+            return;
+        }
+
+        running = true;
+        lastFrameNanos = -1;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Changes the direction of the run, a paused run will be resumed.
+     * A reversed run stops at the start of the reveal.
+     */
+    void reverse() {
+        if (!started)
+            return;
+
+        reversed = !reversed;
+        resume();
+    }
+
+    /**
+     * Moves the run to the specified fraction of the reveal and fade, the run isn't resumed.
+     */
+    void seek(float fraction) {
+        if (!started)
+            return;
+
+        fraction = Math.min(Math.max(fraction, 0.0f), 1.0f);
+        playNanos = (long) (getTotalNanos() * (double) fraction);
+        apply();
+    }
+
+    /**
+     * Stops the run and shows the whole path
+     */
+    void cancel() {
+        stopFrames();
+        if (started) {
+            started = false;
+            view.onAnimationProgress(-1);
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running)
+            return;
+
+        if (lastFrameNanos != -1) {
+            long delta = (long) ((frameTimeNanos - lastFrameNanos) / durationScale);
+            playNanos += reversed ? -delta : delta;
+        }
+        lastFrameNanos = frameTimeNanos;
+        apply();
+
+        if (running)
+            Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void stopFrames() {
+        if (running) {
+            running = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    /**
+     * @return the animator duration scale of the system, 0 if animators are disabled.
+     * It's read when a run starts or resumes, since it's only public on Android O
+     * and reading the settings on every frame isn't cheap.
+     */
+    private float readDurationScale() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O)
+            return ValueAnimator.areAnimatorsEnabled() ? ValueAnimator.getDurationScale() : 0;
+
+        return Settings.Global.getFloat(view.getContext().getContentResolver(),
+                Settings.Global.ANIMATOR_DURATION_SCALE, 1.0f);
+    }
+
+    private long getTotalNanos() {
+        return revealNanos + (view.isHelperArrowsEnabled() ? fadeNanos : 0);
+    }
+
+    /**
+     * Updates the animation progress of the view to the current play time
+     */
+    private void apply() {
+        if (reversed && playNanos <= 0) {
+            playNanos = 0;
+            running = false;
+            view.onAnimationProgress(0);
+            return;
+        }
+
+        if (playNanos >= getTotalNanos()) {
+            started = running = false;
+            view.onAnimationProgress(-1);
+            return;
+        }
+
+        if (playNanos < revealNanos) {
+            float fraction = Math.max(playNanos, 0) / (float) revealNanos;
+            view.onAnimationProgress(interpolator == null ? fraction : interpolator.getInterpolation(fraction));
+        } else {
+            // Accelerate-decelerate, like the default interpolator of an animator
+            float fraction = (playNanos - revealNanos) / (float) fadeNanos;
+            view.onAnimationProgress(1.0f + (float) (Math.cos((fraction + 1) * Math.PI) / 2.0f) + 0.5f);
+        }
+    }
+}
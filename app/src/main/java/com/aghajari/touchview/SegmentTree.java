@@ -0,0 +1,183 @@
+package com.aghajari.touchview;
+
+/**
+ * A bounding volume hierarchy over the line segments between the stops of a
+ * {@link PathSampleTable}, used to project a touch position onto the path.
+ * Segments are split by their order along the path instead of their position,
+ * so each node covers a contiguous range of the progress as well as an area,
+ * and a query which is limited to a window of the progress skips the rest of the path.
+ * The segment between the end of a stroke and the start of the next one is ignored.
+ * <p>
+ * The tree isn't modified after it's built and queries keep their state in a {@link Query},
+ * so a tree can be shared between threads as long as each of them has its own query.
+ */
+final class SegmentTree {
+
+    /**
+     * State of a projection, it's reused by the next projections of its owner
+     */
+    static final class Query {
+        private float bestDistance, bestProgress;
+        private float x, y, from, to;
+
+        /**
+         * @return distance of the last projected position from the path,
+         * only valid if the projection has found a point
+         */
+        float getDistance() {
+            return (float) Math.sqrt(bestDistance);
+        }
+    }
+
+    private static final int LEAF_SIZE = 4;
+
+    private final PathSampleTable samples;
+
+    // Node i covers the segments [first[i], last[i]), children of an inner node are left[i] and left[i] + 1
+    private final int[] first;
+    private final int[] last;
+    private final int[] left;
+    private final float[] bounds;
+    private int nodes;
+
+    SegmentTree(PathSampleTable samples) {
+        this.samples = samples;
+
+        int segments = Math.max(samples.size() - 1, 0);
+        // Leaves have at least 2 segments, so there are fewer nodes than segments
+        int capacity = Math.max(segments, 1);
+        first = new int[capacity];
+        last = new int[capacity];
+        left = new int[capacity];
+        bounds = new float[capacity * 4];
+
+        nodes = 1;
+        build(0, 0, segments);
+    }
+
+    private void build(int node, int from, int to) {
+        first[node] = from;
+        last[node] = to;
+        left[node] = -1;
+
+        if (to - from > LEAF_SIZE) {
+            int child = nodes;
+            nodes += 2;
+            left[node] = child;
+
+            int mid = (from + to) >>> 1;
+            build(child, from, mid);
+            build(child + 1, mid, to);
+
+            int b = node * 4, l = child * 4, r = l + 4;
+            bounds[b] = Math.min(bounds[l], bounds[r]);
+            bounds[b + 1] = Math.min(bounds[l + 1], bounds[r + 1]);
+            bounds[b + 2] = Math.max(bounds[l + 2], bounds[r + 2]);
+            bounds[b + 3] = Math.max(bounds[l + 3], bounds[r + 3]);
+            return;
+        }
+
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            if (isJump(i))
+                continue;
+
+            for (int p = i; p <= i + 1; p++) {
+                minX = Math.min(minX, samples.getX(p));
+                minY = Math.min(minY, samples.getY(p));
+                maxX = Math.max(maxX, samples.getX(p));
+                maxY = Math.max(maxY, samples.getY(p));
+            }
+        }
+        int b = node * 4;
+        bounds[b] = minX;
+        bounds[b + 1] = minY;
+        bounds[b + 2] = maxX;
+        bounds[b + 3] = maxY;
+    }
+
+    /**
+     * Projects (x, y) onto the part of the path between two progresses
+     *
+     * @param query       state of the projection
+     * @param from        start of the window
+     * @param to          end of the window
+     * @param maxDistance maximum distance of (x, y) from the path
+     * @return progress of the nearest point of the window to (x, y),
+     * or -1 if the window isn't within maxDistance of (x, y)
+     */
+    float project(Query query, float x, float y, float from, float to, float maxDistance) {
+        query.bestDistance = maxDistance * maxDistance;
+        query.bestProgress = -1;
+        if (samples.size() < 2 || to < from)
+            return -1;
+
+        query.x = x;
+        query.y = y;
+        query.from = from;
+        query.to = to;
+        visit(query, 0);
+        return query.bestProgress;
+    }
+
+    private void visit(Query query, int node) {
+        int from = first[node], to = last[node];
+        if (from == to
+                || samples.getProgress(from) > query.to
+                || samples.getProgress(to) < query.from
+                || boundsDistance(query, node) > query.bestDistance)
+            return;
+
+        if (left[node] != -1) {
+            visit(query, left[node]);
+            visit(query, left[node] + 1);
+            return;
+        }
+
+        for (int i = from; i < to; i++) {
+            if (!isJump(i))
+                projectSegment(query, i);
+        }
+    }
+
+    private void projectSegment(Query query, int index) {
+        float startProgress = samples.getProgress(index), endProgress = samples.getProgress(index + 1);
+        if (startProgress > query.to || endProgress < query.from)
+            return;
+
+        float ax = samples.getX(index), ay = samples.getY(index);
+        float dx = samples.getX(index + 1) - ax, dy = samples.getY(index + 1) - ay;
+        float length2 = dx * dx + dy * dy;
+
+        float t = length2 > 0 ? ((query.x - ax) * dx + (query.y - ay) * dy) / length2 : 0;
+        float range = endProgress - startProgress;
+        float minT = Math.max(0, (query.from - startProgress) / range);
+        float maxT = Math.min(1, (query.to - startProgress) / range);
+        t = Math.min(Math.max(t, minT), maxT);
+
+        float px = ax + dx * t - query.x, py = ay + dy * t - query.y;
+        float distance = px * px + py * py;
+        if (distance <= query.bestDistance) {
+            query.bestDistance = distance;
+            query.bestProgress = t == 1 ? endProgress : startProgress + range * t;
+        }
+    }
+
+    /**
+     * @return squared distance of the query position from the bounds of the node
+     */
+    private float boundsDistance(Query query, int node) {
+        int b = node * 4;
+        float dx = Math.max(Math.max(bounds[b] - query.x, query.x - bounds[b + 2]), 0);
+        float dy = Math.max(Math.max(bounds[b + 1] - query.y, query.y - bounds[b + 3]), 0);
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * @return true if the segment connects two strokes
+     */
+    private boolean isJump(int index) {
+        return samples.getProgress(index) == samples.getProgress(index + 1);
+    }
+}
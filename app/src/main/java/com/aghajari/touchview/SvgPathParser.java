@@ -0,0 +1,416 @@
+package com.aghajari.touchview;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming parser of SVG path data, the {@code d} attribute of a path element.
+ * The data is read one character at a time from a {@link CharSequence} or a {@link Reader},
+ * numbers are parsed in place, so parsing doesn't use regex or allocate substrings.
+ * <p>
+ * All commands are supported, relative commands are converted to absolute ones,
+ * H and V to lines, S and T to curves with the reflected control point,
+ * and arcs to cubic curves. The parser doesn't depend on Android,
+ * so it can be tested on a plain JVM.
+ *
+ * @see PreparedPath#parseSvg(CharSequence, float)
+ */
+public final class SvgPathParser {
+
+    /**
+     * Receives the absolute commands of the path data
+     */
+    public interface Handler {
+        void moveTo(float x, float y);
+
+        void lineTo(float x, float y);
+
+        void quadTo(float x1, float y1, float x2, float y2);
+
+        void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3);
+
+        void close();
+    }
+
+    private static final int END = -1;
+    private static final int BUFFER_SIZE = 512;
+
+    private final CharSequence chars;
+    private final Reader reader;
+    private final char[] buffer;
+    private int bufferPosition, bufferLength;
+    private int position;
+
+    private final Handler handler;
+    private float currentX, currentY, startX, startY;
+    private float controlX, controlY;
+    private int previous;
+    private boolean closed;
+
+    private SvgPathParser(CharSequence chars, Reader reader, Handler handler) {
+        this.chars = chars;
+        this.reader = reader;
+        this.buffer = reader == null ? null : new char[BUFFER_SIZE];
+        this.handler = handler;
+    }
+
+    /**
+     * Parses the path data and sends its commands to the handler
+     *
+     * @throws IllegalArgumentException if the path data is invalid
+     */
+    public static void parse(@NonNull CharSequence data, @NonNull Handler handler) {
+        try {
+            new SvgPathParser(data, null, handler).parse();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Parses the path data of the reader and sends its commands to the handler,
+     * the reader isn't closed.
+     *
+     * @throws IllegalArgumentException if the path data is invalid
+     */
+    public static void parse(@NonNull Reader data, @NonNull Handler handler) throws IOException {
+        new SvgPathParser(null, data, handler).parse();
+    }
+
+    private void parse() throws IOException {
+        int command = 0;
+        while (true) {
+            skipSeparators();
+            int c = peek();
+            if (c == END)
+                break;
+
+            if (isCommand(c)) {
+                next();
+                command = c;
+            } else if (command == 0 || command == 'Z' || command == 'z') {
+                throw error("expected a command");
+            }
+
+            execute(command);
+            // Coordinates after a move are implicit lines
+            if (command == 'M')
+                command = 'L';
+            else if (command == 'm')
+                command = 'l';
+        }
+    }
+
+    private void execute(int command) throws IOException {
+        boolean relative = command >= 'a';
+        float dx = relative ? currentX : 0, dy = relative ? currentY : 0;
+        int type = relative ? command - ('a' - 'A') : command;
+
+        switch (type) {
+            case 'M': {
+                float x = readNumber() + dx, y = readNumber() + dy;
+                handler.moveTo(x, y);
+                closed = false;
+                startX = currentX = x;
+                startY = currentY = y;
+                break;
+            }
+            case 'L':
+                lineTo(readNumber() + dx, readNumber() + dy);
+                break;
+            case 'H':
+                lineTo(readNumber() + dx, currentY);
+                break;
+            case 'V':
+                lineTo(currentX, readNumber() + dy);
+                break;
+            case 'C': {
+                float x1 = readNumber() + dx, y1 = readNumber() + dy;
+                float x2 = readNumber() + dx, y2 = readNumber() + dy;
+                cubicTo(x1, y1, x2, y2, readNumber() + dx, readNumber() + dy);
+                break;
+            }
+            case 'S': {
+                float x1 = currentX, y1 = currentY;
+                if (previous == 'C') {
+                    x1 = 2 * currentX - controlX;
+                    y1 = 2 * currentY - controlY;
+                }
+                float x2 = readNumber() + dx, y2 = readNumber() + dy;
+                cubicTo(x1, y1, x2, y2, readNumber() + dx, readNumber() + dy);
+                break;
+            }
+            case 'Q': {
+                float x1 = readNumber() + dx, y1 = readNumber() + dy;
+                quadTo(x1, y1, readNumber() + dx, readNumber() + dy);
+                break;
+            }
+            case 'T': {
+                float x1 = currentX, y1 = currentY;
+                if (previous == 'Q') {
+                    x1 = 2 * currentX - controlX;
+                    y1 = 2 * currentY - controlY;
+                }
+                quadTo(x1, y1, readNumber() + dx, readNumber() + dy);
+                break;
+            }
+            case 'A': {
+                float rx = readNumber(), ry = readNumber(), rotation = readNumber();
+                boolean largeArc = readFlag(), sweep = readFlag();
+                arcTo(rx, ry, rotation, largeArc, sweep, readNumber() + dx, readNumber() + dy);
+                break;
+            }
+            case 'Z':
+                handler.close();
+                closed = true;
+                currentX = startX;
+                currentY = startY;
+                break;
+            default:
+                throw error("unknown command " + (char) command);
+        }
+        previous = type == 'S' ? 'C' : type == 'T' ? 'Q' : type;
+    }
+
+    private void lineTo(float x, float y) {
+        ensureContour();
+        handler.lineTo(x, y);
+        currentX = x;
+        currentY = y;
+    }
+
+    private void quadTo(float x1, float y1, float x2, float y2) {
+        ensureContour();
+        handler.quadTo(x1, y1, x2, y2);
+        controlX = x1;
+        controlY = y1;
+        currentX = x2;
+        currentY = y2;
+    }
+
+    private void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        ensureContour();
+        handler.cubicTo(x1, y1, x2, y2, x3, y3);
+        controlX = x2;
+        controlY = y2;
+        currentX = x3;
+        currentY = y3;
+    }
+
+    /**
+     * A command after a close starts a new contour at the start of the closed one
+     */
+    private void ensureContour() {
+        if (closed) {
+            closed = false;
+            handler.moveTo(startX, startY);
+        }
+    }
+
+    /**
+     * Converts an elliptical arc to cubic curves of at most 90 degrees,
+     * as described in the implementation notes of the SVG specification.
+     */
+    private void arcTo(float rx, float ry, float rotation, boolean largeArc, boolean sweep,
+                       float x, float y) {
+        float x0 = currentX, y0 = currentY;
+        if (x0 == x && y0 == y)
+            return;
+        if (rx == 0 || ry == 0) {
+            lineTo(x, y);
+            return;
+        }
+
+        double a = Math.abs(rx), b = Math.abs(ry);
+        double phi = Math.toRadians(rotation % 360);
+        double cos = Math.cos(phi), sin = Math.sin(phi);
+
+        double hx = (x0 - x) / 2.0, hy = (y0 - y) / 2.0;
+        double x1 = cos * hx + sin * hy, y1 = -sin * hx + cos * hy;
+
+        double lambda = (x1 * x1) / (a * a) + (y1 * y1) / (b * b);
+        if (lambda > 1) {
+            a *= Math.sqrt(lambda);
+            b *= Math.sqrt(lambda);
+        }
+
+        double a2 = a * a, b2 = b * b;
+        double denominator = a2 * y1 * y1 + b2 * x1 * x1;
+        double coefficient = denominator == 0 ? 0
+                : Math.sqrt(Math.max(0, (a2 * b2 - denominator) / denominator));
+        if (largeArc == sweep)
+            coefficient = -coefficient;
+
+        double cx1 = coefficient * a * y1 / b, cy1 = -coefficient * b * x1 / a;
+        double cx = cos * cx1 - sin * cy1 + (x0 + x) / 2.0;
+        double cy = sin * cx1 + cos * cy1 + (y0 + y) / 2.0;
+
+        double theta = Math.atan2((y1 - cy1) / b, (x1 - cx1) / a);
+        double delta = Math.atan2((-y1 - cy1) / b, (-x1 - cx1) / a) - theta;
+        if (sweep && delta < 0)
+            delta += 2 * Math.PI;
+        else if (!sweep && delta > 0)
+            delta -= 2 * Math.PI;
+
+        int segments = Math.max(1, (int) Math.ceil(Math.abs(delta) / (Math.PI / 2) - 1e-7));
+        double step = delta / segments;
+        double k = 4.0 / 3.0 * Math.tan(step / 4);
+
+        double cosT = Math.cos(theta), sinT = Math.sin(theta);
+        double px = x0, py = y0;
+        for (int i = 1; i <= segments; i++) {
+            double next = theta + step * i;
+            double cosN = Math.cos(next), sinN = Math.sin(next);
+
+            // Derivatives of the ellipse at both ends
+            double d1x = -a * sinT * cos - b * cosT * sin, d1y = -a * sinT * sin + b * cosT * cos;
+            double d2x = -a * sinN * cos - b * cosN * sin, d2y = -a * sinN * sin + b * cosN * cos;
+
+            double ex, ey;
+            if (i == segments) {
+                ex = x;
+                ey = y;
+            } else {
+                ex = cx + a * cosN * cos - b * sinN * sin;
+                ey = cy + a * cosN * sin + b * sinN * cos;
+            }
+            cubicTo((float) (px + k * d1x), (float) (py + k * d1y),
+                    (float) (ex - k * d2x), (float) (ey - k * d2y), (float) ex, (float) ey);
+
+            px = ex;
+            py = ey;
+            cosT = cosN;
+            sinT = sinN;
+        }
+    }
+
+    private float readNumber() throws IOException {
+        skipSeparators();
+        int c = peek();
+        boolean negative = false;
+        if (c == '+' || c == '-') {
+            negative = c == '-';
+            next();
+            c = peek();
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        boolean digits = false;
+        while (isDigit(c)) {
+            if (mantissa < 100000000000000000L)
+                mantissa = mantissa * 10 + (c - '0');
+            else
+                exponent++;
+            digits = true;
+            next();
+            c = peek();
+        }
+        if (c == '.') {
+            next();
+            c = peek();
+            while (isDigit(c)) {
+                if (mantissa < 100000000000000000L) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    exponent--;
+                }
+                digits = true;
+                next();
+                c = peek();
+            }
+        }
+        if (!digits)
+            throw error("expected a number");
+
+        if (c == 'e' || c == 'E') {
+            next();
+            c = peek();
+            boolean negativeExponent = false;
+            if (c == '+' || c == '-') {
+                negativeExponent = c == '-';
+                next();
+                c = peek();
+            }
+
+            int value = 0;
+            boolean exponentDigits = false;
+            while (isDigit(c)) {
+                if (value < 10000)
+                    value = value * 10 + (c - '0');
+                exponentDigits = true;
+                next();
+                c = peek();
+            }
+            if (!exponentDigits)
+                throw error("expected an exponent");
+            exponent += negativeExponent ? -value : value;
+        }
+
+        double value = exponent >= 0
+                ? mantissa * Math.pow(10, exponent)
+                : mantissa / Math.pow(10, -exponent);
+        return (float) (negative ? -value : value);
+    }
+
+    /**
+     * Flags are a single digit, they don't need to be separated from the next number
+     */
+    private boolean readFlag() throws IOException {
+        skipSeparators();
+        int c = peek();
+        if (c != '0' && c != '1')
+            throw error("expected a flag");
+        next();
+        return c == '1';
+    }
+
+    private void skipSeparators() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == ',' || c == '\n' || c == '\r' || c == '\t' || c == '\f') {
+            next();
+            c = peek();
+        }
+    }
+
+    private int peek() throws IOException {
+        if (chars != null)
+            return position < chars.length() ? chars.charAt(position) : END;
+
+        if (bufferPosition == bufferLength) {
+            bufferLength = reader.read(buffer, 0, buffer.length);
+            bufferPosition = 0;
+            if (bufferLength <= 0) {
+                bufferLength = 0;
+                return END;
+            }
+        }
+        return buffer[bufferPosition];
+    }
+
+    private void next() {
+        position++;
+        if (reader != null)
+            bufferPosition++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + position);
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isCommand(int c) {
+        switch (c) {
+            case 'M': case 'm': case 'L': case 'l': case 'H': case 'h': case 'V': case 'v':
+            case 'C': case 'c': case 'S': case 's': case 'Q': case 'q': case 'T': case 't':
+            case 'A': case 'a': case 'Z': case 'z':
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.aghajari.touchview;
+
+import android.graphics.Bitmap;
+import android.graphics.Path;
+import android.util.LruCache;
+import android.util.Pair;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Process-wide cache of rendered thumbnails, shared by all of the AXTouchViews
+ * on thumbnail mode. Thumbnails are keyed by the identity of the source path,
+ * the size of the view and the values of the drawing style.
+ *
+ * @see AXTouchView#setThumbnailMode(boolean)
+ */
+final class ThumbnailCache {
+
+    private static final LruCache<Key, Bitmap> cache =
+            new LruCache<Key, Bitmap>((int) Math.min(Runtime.getRuntime().maxMemory() / 16, Integer.MAX_VALUE)) {
+                @Override
+                protected int sizeOf(Key key, Bitmap value) {
+                    return value.getByteCount();
+                }
+            };
+
+    private ThumbnailCache() {
+    }
+
+    static Bitmap get(Key key) {
+        return cache.get(key);
+    }
+
+    static void put(Key key, Bitmap bitmap) {
+        cache.put(key, bitmap);
+    }
+
+    static void clear() {
+        cache.evictAll();
+    }
+
+    /**
+     * Everything except the path and size which affects a thumbnail.
+     * Helper arrows are copied by value, so views with equal helpers share thumbnails
+     * and a list which is modified in place doesn't match its old thumbnail.
+     */
+    static final class Style {
+        int hoverColor, touchedColor;
+        float strokeWidth, progress;
+        // The sampling of the path, the traced path and the arrow heads are drawn from its stops
+        float step;
+        int stepMode;
+        boolean toCenter;
+        boolean helpersEnabled;
+        int helperColor;
+        float helperWidth;
+        private float[] helpers = new float[0];
+        private int helperCount;
+
+        void setHelpers(List<Pair<Float, Float>> list) {
+            helperCount = list == null ? 0 : list.size() * 2;
+            if (helpers.length < helperCount)
+                helpers = new float[helperCount];
+            for (int i = 0; i < helperCount; i += 2) {
+                Pair<Float, Float> pair = list.get(i / 2);
+                helpers[i] = pair.first;
+                helpers[i + 1] = pair.second;
+            }
+        }
+
+        Style copy() {
+            Style style = new Style();
+            style.hoverColor = hoverColor;
+            style.touchedColor = touchedColor;
+            style.strokeWidth = strokeWidth;
+            style.progress = progress;
+            style.step = step;
+            style.stepMode = stepMode;
+            style.toCenter = toCenter;
+            style.helpersEnabled = helpersEnabled;
+            style.helperColor = helperColor;
+            style.helperWidth = helperWidth;
+            style.helpers = Arrays.copyOf(helpers, helperCount);
+            style.helperCount = helperCount;
+            return style;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Style))
+                return false;
+
+            Style style = (Style) o;
+            if (hoverColor != style.hoverColor || touchedColor != style.touchedColor
+                    || Float.compare(strokeWidth, style.strokeWidth) != 0
+                    || Float.compare(progress, style.progress) != 0
+                    || Float.compare(step, style.step) != 0 || stepMode != style.stepMode
+                    || toCenter != style.toCenter || helpersEnabled != style.helpersEnabled)
+                return false;
+            if (!helpersEnabled)
+                return true;
+
+            if (helperColor != style.helperColor
+                    || Float.compare(helperWidth, style.helperWidth) != 0
+                    || helperCount != style.helperCount)
+                return false;
+            for (int i = 0; i < helperCount; i++) {
+                if (Float.compare(helpers[i], style.helpers[i]) != 0)
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = hoverColor;
+            result = 31 * result + touchedColor;
+            result = 31 * result + Float.floatToIntBits(strokeWidth);
+            result = 31 * result + Float.floatToIntBits(progress);
+            result = 31 * result + Float.floatToIntBits(step);
+            result = 31 * result + stepMode;
+            result = 31 * result + (toCenter ? 1 : 0);
+            if (helpersEnabled) {
+                result = 31 * result + helperColor;
+                result = 31 * result + Float.floatToIntBits(helperWidth);
+                for (int i = 0; i < helperCount; i++)
+                    result = 31 * result + Float.floatToIntBits(helpers[i]);
+            }
+            return result;
+        }
+    }
+
+    static final class Key {
+        final Path path;
+        final int width, height;
+        final Style style;
+
+        /**
+         * @param style a copy of the style which is never modified
+         */
+        Key(Path path, int width, int height, Style style) {
+            this.path = path;
+            this.width = width;
+            this.height = height;
+            this.style = style;
+        }
+
+        boolean matches(Path path, int width, int height, Style style) {
+            return this.path == path && this.width == width
+                    && this.height == height && this.style.equals(style);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+
+            Key key = (Key) o;
+            return matches(key.path, key.width, key.height, key.style);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(path);
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + style.hashCode();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.aghajari.touchview;
+
+import android.view.MotionEvent;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Records the touch samples, step advances and listener callbacks of an {@link AXTouchView},
+ * set by {@link AXTouchView#setRecorder(TouchRecorder)}.
+ * Records are kept in a preallocated ring buffer, so recording doesn't allocate
+ * and the oldest records are overwritten once the buffer is full.
+ * <p>
+ * A recording can be written to a {@link ByteBuffer} or a stream in a compact binary format
+ * and replayed by {@link TouchReplay}.
+ */
+public final class TouchRecorder {
+
+    /**
+     * Header of a touch event, followed by its samples.
+     * Action is one of the {@code ACTION_} constants of the recorder and value is the pointer count.
+     */
+    public static final int TYPE_EVENT = 1;
+    /**
+     * Position of a pointer, action is the pointer id.
+     * Samples of an event are grouped by time, from the oldest historical sample to the current one,
+     * each group has a sample per pointer in the order of the pointers of the event.
+     */
+    public static final int TYPE_SAMPLE = 2;
+    /**
+     * The progress has moved to the next step, x is the new progress
+     */
+    public static final int TYPE_STEP = 3;
+    /**
+     * {@link AXTouchView.OnTouchViewListener#onProgressChanged} has been called, x is the progress
+     */
+    public static final int TYPE_PROGRESS_CHANGED = 4;
+    /**
+     * {@link AXTouchView.OnTouchViewListener#onStartTrackingTouch} has been called
+     */
+    public static final int TYPE_START_TRACKING = 5;
+    /**
+     * {@link AXTouchView.OnTouchViewListener#onStopTrackingTouch} has been called
+     */
+    public static final int TYPE_STOP_TRACKING = 6;
+
+    /**
+     * Masked actions of a {@link #TYPE_EVENT} record. They're independent of the platform,
+     * so a recording can be read and scored off-device. Their values match {@link MotionEvent}.
+     */
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+    public static final int ACTION_POINTER_DOWN = 5;
+    public static final int ACTION_POINTER_UP = 6;
+    /**
+     * Any other action, such as a hover, it isn't replayed
+     */
+    public static final int ACTION_OTHER = 0xff;
+
+    /**
+     * Bits of the masked action, the pointer index of a pointer action is in the remaining bits
+     */
+    public static final int ACTION_MASK = 0xff;
+    public static final int ACTION_POINTER_INDEX_MASK = 0xff00;
+    public static final int ACTION_POINTER_INDEX_SHIFT = 8;
+
+    private static final int MAGIC = 0x41585452; // AXTR
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 4;
+    private static final int RECORD_SIZE = 1 + 2 + 2 + 4 + 4 + 4;
+    // Largest recording which fits in an array
+    private static final long MAX_STREAM_SIZE = Integer.MAX_VALUE - 8;
+
+    private final byte[] types;
+    private final short[] actions;
+    private final short[] values;
+    private final long[] times;
+    private final float[] coords;
+    private int head, size;
+    private long eventTime;
+
+    /**
+     * @param capacity maximum number of records, the oldest records are overwritten after that
+     */
+    public TouchRecorder(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be greater than 0");
+
+        types = new byte[capacity];
+        actions = new short[capacity];
+        values = new short[capacity];
+        times = new long[capacity];
+        coords = new float[capacity * 2];
+    }
+
+    void onTouchEvent(MotionEvent event) {
+        eventTime = event.getEventTime();
+        int pointerCount = event.getPointerCount();
+        add(TYPE_EVENT, toRecordedAction(event.getAction()), pointerCount, eventTime, 0, 0);
+
+        final int historySize = event.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            long time = event.getHistoricalEventTime(h);
+            for (int p = 0; p < pointerCount; p++)
+                add(TYPE_SAMPLE, event.getPointerId(p), 0, time,
+                        event.getHistoricalX(p, h), event.getHistoricalY(p, h));
+        }
+        for (int p = 0; p < pointerCount; p++)
+            add(TYPE_SAMPLE, event.getPointerId(p), 0, eventTime, event.getX(p), event.getY(p));
+    }
+
+    /**
+     * @return the recorded action of the specified {@link MotionEvent#getAction()}
+     */
+    static int toRecordedAction(int action) {
+        int index = (action & MotionEvent.ACTION_POINTER_INDEX_MASK) >> MotionEvent.ACTION_POINTER_INDEX_SHIFT;
+        switch (action & MotionEvent.ACTION_MASK) {
+            case MotionEvent.ACTION_DOWN:
+                return ACTION_DOWN;
+            case MotionEvent.ACTION_UP:
+                return ACTION_UP;
+            case MotionEvent.ACTION_MOVE:
+                return ACTION_MOVE;
+            case MotionEvent.ACTION_CANCEL:
+                return ACTION_CANCEL;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                return ACTION_POINTER_DOWN | (index << ACTION_POINTER_INDEX_SHIFT);
+            case MotionEvent.ACTION_POINTER_UP:
+                return ACTION_POINTER_UP | (index << ACTION_POINTER_INDEX_SHIFT);
+            default:
+                return ACTION_OTHER;
+        }
+    }
+
+    void onStep(float progress) {
+        add(TYPE_STEP, 0, 0, eventTime, progress, 0);
+    }
+
+    void onCallback(int type, float progress) {
+        add(type, 0, 0, eventTime, progress, 0);
+    }
+
+    private void add(int type, int action, int value, long time, float x, float y) {
+        int index = (head + size) % types.length;
+        if (size == types.length)
+            head = (head + 1) % types.length;
+        else
+            size++;
+
+        types[index] = (byte) type;
+        actions[index] = (short) action;
+        values[index] = (short) value;
+        times[index] = time;
+        coords[index * 2] = x;
+        coords[index * 2 + 1] = y;
+    }
+
+    /**
+     * Removes all of the records
+     */
+    public void clear() {
+        head = size = 0;
+    }
+
+    /**
+     * @return number of records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return maximum number of records
+     */
+    public int getCapacity() {
+        return types.length;
+    }
+
+    /**
+     * @return type of the record at the specified index, the oldest record is at 0
+     */
+    public int getType(int index) {
+        return types[slot(index)];
+    }
+
+    /**
+     * @return action of a {@link #TYPE_EVENT} record or pointer id of a {@link #TYPE_SAMPLE} record
+     */
+    public int getAction(int index) {
+        return actions[slot(index)] & 0xffff;
+    }
+
+    /**
+     * @return pointer count of a {@link #TYPE_EVENT} record
+     */
+    public int getValue(int index) {
+        return values[slot(index)];
+    }
+
+    /**
+     * @return event time of the record, in the {@link android.os.SystemClock#uptimeMillis()} time base
+     */
+    public long getTime(int index) {
+        return times[slot(index)];
+    }
+
+    /**
+     * @return x of a sample or the progress of a step or callback
+     */
+    public float getX(int index) {
+        return coords[slot(index) * 2];
+    }
+
+    /**
+     * @return y of a sample
+     */
+    public float getY(int index) {
+        return coords[slot(index) * 2 + 1];
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        return (head + index) % types.length;
+    }
+
+    /**
+     * @return number of bytes written by {@link #writeTo(ByteBuffer)}
+     */
+    public int getByteSize() {
+        return HEADER_SIZE + size * RECORD_SIZE;
+    }
+
+    /**
+     * @return a new buffer containing the binary recording
+     */
+    @NonNull
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(getByteSize());
+        writeTo(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Writes the binary recording at the current position of the buffer.
+     * Times are written relative to the first record, so a record takes 17 bytes.
+     *
+     * @see #getByteSize()
+     */
+    public void writeTo(@NonNull ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        long base = size == 0 ? 0 : getTime(0);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putLong(base);
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++)
+            writeRecord(buffer, i, base);
+
+        buffer.order(order);
+    }
+
+    /**
+     * Streams the binary recording to the specified stream, such as a file,
+     * through a small reusable buffer.
+     *
+     * @see #writeTo(ByteBuffer)
+     */
+    public void writeTo(@NonNull OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(HEADER_SIZE, RECORD_SIZE) * 64);
+        long base = size == 0 ? 0 : getTime(0);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putLong(base);
+        buffer.putInt(size);
+
+        for (int i = 0; i < size; i++) {
+            if (buffer.remaining() < RECORD_SIZE) {
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            writeRecord(buffer, i, base);
+        }
+        out.write(buffer.array(), 0, buffer.position());
+        out.flush();
+    }
+
+    private void writeRecord(ByteBuffer buffer, int index, long base) {
+        int slot = slot(index);
+        buffer.put(types[slot]);
+        buffer.putShort(actions[slot]);
+        buffer.putShort(values[slot]);
+        buffer.putInt((int) (times[slot] - base));
+        buffer.putFloat(coords[slot * 2]);
+        buffer.putFloat(coords[slot * 2 + 1]);
+    }
+
+    /**
+     * Reads a binary recording from the current position of the buffer
+     *
+     * @return a recorder which contains the records, its capacity is the number of records
+     * @throws IllegalArgumentException if the buffer doesn't contain a recording
+     */
+    @NonNull
+    public static TouchRecorder readFrom(@NonNull ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION)
+                throw new IllegalArgumentException("not a touch recording");
+
+            long base = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / RECORD_SIZE)
+                throw new IllegalArgumentException("truncated touch recording");
+
+            TouchRecorder recorder = new TouchRecorder(Math.max(count, 1));
+            for (int i = 0; i < count; i++) {
+                recorder.types[i] = buffer.get();
+                recorder.actions[i] = buffer.getShort();
+                recorder.values[i] = buffer.getShort();
+                recorder.times[i] = base + buffer.getInt();
+                recorder.coords[i * 2] = buffer.getFloat();
+                recorder.coords[i * 2 + 1] = buffer.getFloat();
+            }
+            recorder.size = count;
+            return recorder;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated touch recording", e);
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /**
+     * Reads a binary recording from the specified stream, the stream isn't closed.
+     * The header is checked before the records are read, and the records are buffered
+     * as they arrive, so a corrupt count can't allocate more than the stream contains.
+     *
+     * @throws IllegalArgumentException if the stream doesn't contain a recording or it's truncated
+     * @see #readFrom(ByteBuffer)
+     */
+    @NonNull
+    public static TouchRecorder readFrom(@NonNull InputStream in) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        readFully(in, header, 0);
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        if (buffer.getInt() != MAGIC || buffer.get() != VERSION)
+            throw new IllegalArgumentException("not a touch recording");
+
+        int count = buffer.getInt(HEADER_SIZE - 4);
+        long size = HEADER_SIZE + (long) count * RECORD_SIZE;
+        if (count < 0 || size > MAX_STREAM_SIZE)
+            throw new IllegalArgumentException("not a touch recording");
+
+        byte[] data = Arrays.copyOf(header, (int) Math.min(size, HEADER_SIZE + RECORD_SIZE * 256));
+        int offset = HEADER_SIZE;
+        while (offset < size) {
+            if (offset == data.length)
+                data = Arrays.copyOf(data, (int) Math.min(size, data.length * 2L));
+
+            int read = in.read(data, offset, data.length - offset);
+            if (read < 0)
+                throw new IllegalArgumentException("truncated touch recording");
+            offset += read;
+        }
+        return readFrom(ByteBuffer.wrap(data));
+    }
+
+    private static void readFully(InputStream in, byte[] data, int offset) throws IOException {
+        while (offset < data.length) {
+            int read = in.read(data, offset, data.length - offset);
+            if (read < 0)
+                throw new IOException("unexpected end of the touch recording");
+            offset += read;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.aghajari.touchview;
+
+import android.view.InputDevice;
+import android.view.MotionEvent;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Feeds the touch events of a {@link TouchRecorder} back to an {@link AXTouchView}.
+ * Events are dispatched synchronously with their recorded times, one after another,
+ * so a replay is deterministic and runs as fast as the view can process the events.
+ * <p>
+ * Replay starts from the first recorded down event, the events of a gesture
+ * which has been partly overwritten by the ring buffer are skipped.
+ */
+public final class TouchReplay {
+
+    private TouchReplay() {
+    }
+
+    /**
+     * Dispatches all of the recorded touch events to the view on the calling thread
+     *
+     * @param recording the recording to replay, it must not be the recorder of the view
+     * @return number of dispatched events
+     */
+    public static int replay(@NonNull TouchRecorder recording, @NonNull AXTouchView touchView) {
+        if (touchView.getRecorder() == recording)
+            throw new IllegalArgumentException("can't replay a recording into itself");
+
+        int dispatched = 0;
+        long downTime = -1;
+        MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[0];
+        MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[0];
+
+        int size = recording.size();
+        for (int i = 0; i < size; i++) {
+            if (recording.getType(i) != TouchRecorder.TYPE_EVENT)
+                continue;
+
+            int action = toMotionAction(recording.getAction(i));
+            int pointerCount = recording.getValue(i);
+            if (action == MotionEvent.ACTION_DOWN)
+                downTime = recording.getTime(i);
+            if (downTime == -1 || action == -1 || pointerCount <= 0)
+                continue;
+
+            int samples = 0;
+            while (i + 1 + samples < size && recording.getType(i + 1 + samples) == TouchRecorder.TYPE_SAMPLE)
+                samples++;
+            if (samples == 0 || samples % pointerCount != 0)
+                continue;
+
+            if (properties.length < pointerCount) {
+                properties = new MotionEvent.PointerProperties[pointerCount];
+                coords = new MotionEvent.PointerCoords[pointerCount];
+                for (int p = 0; p < pointerCount; p++) {
+                    properties[p] = new MotionEvent.PointerProperties();
+                    coords[p] = new MotionEvent.PointerCoords();
+                }
+            }
+
+            int sample = i + 1;
+            for (int p = 0; p < pointerCount; p++) {
+                properties[p].clear();
+                properties[p].id = recording.getAction(sample + p);
+                properties[p].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            }
+
+            MotionEvent event = null;
+            for (; sample < i + 1 + samples; sample += pointerCount) {
+                for (int p = 0; p < pointerCount; p++) {
+                    coords[p].clear();
+                    coords[p].x = recording.getX(sample + p);
+                    coords[p].y = recording.getY(sample + p);
+                }
+
+                if (event == null) {
+                    event = MotionEvent.obtain(downTime, recording.getTime(sample), action,
+                            pointerCount, properties, coords, 0, 0, 1, 1, 0, 0,
+                            InputDevice.SOURCE_TOUCHSCREEN, 0);
+                } else {
+                    event.addBatch(recording.getTime(sample), coords, 0);
+                }
+            }
+
+            touchView.dispatchTouchEvent(event);
+            event.recycle();
+            dispatched++;
+            i += samples;
+        }
+        return dispatched;
+    }
+
+    /**
+     * @return the {@link MotionEvent} action of the specified recorded action, -1 if it isn't replayed
+     */
+    private static int toMotionAction(int action) {
+        int index = (action & TouchRecorder.ACTION_POINTER_INDEX_MASK) >> TouchRecorder.ACTION_POINTER_INDEX_SHIFT;
+        switch (action & TouchRecorder.ACTION_MASK) {
+            case TouchRecorder.ACTION_DOWN:
+                return MotionEvent.ACTION_DOWN;
+            case TouchRecorder.ACTION_UP:
+                return MotionEvent.ACTION_UP;
+            case TouchRecorder.ACTION_MOVE:
+                return MotionEvent.ACTION_MOVE;
+            case TouchRecorder.ACTION_CANCEL:
+                return MotionEvent.ACTION_CANCEL;
+            case TouchRecorder.ACTION_POINTER_DOWN:
+                return MotionEvent.ACTION_POINTER_DOWN | (index << MotionEvent.ACTION_POINTER_INDEX_SHIFT);
+            case TouchRecorder.ACTION_POINTER_UP:
+                return MotionEvent.ACTION_POINTER_UP | (index << MotionEvent.ACTION_POINTER_INDEX_SHIFT);
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.aghajari.touchview;
+
+import android.view.MotionEvent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Performance counters of an {@link AXTouchView}, set by
+ * {@link AXTouchView#setMetrics(TouchViewMetrics)}.
+ * Counters can be polled at any time, or observed per event and frame
+ * through a {@link Listener}. Views don't measure anything while no metrics is set.
+ */
+public final class TouchViewMetrics {
+
+    public interface Listener {
+        /**
+         * Called after a touch event has been processed
+         *
+         * @param nanos time spent in dispatchTouchEvent
+         * @param steps number of steps advanced by the event
+         */
+        void onTouchEventProcessed(AXTouchView touchView, MotionEvent event, long nanos, int steps);
+
+        /**
+         * Called after a frame has been drawn
+         *
+         * @param nanos time spent in onDraw
+         */
+        void onFrameDrawn(AXTouchView touchView, long nanos);
+    }
+
+    private Listener listener;
+
+    private long touchEvents, touchEventNanos, maxTouchEventNanos;
+    private long moveEvents, stepsAdvanced;
+    private long frames, frameNanos, maxFrameNanos;
+    private long hitTests, hitTestCandidates;
+    private long geometryCacheHits, geometryCacheMisses;
+    private long thumbnailCacheHits, thumbnailCacheMisses;
+
+    public TouchViewMetrics() {
+        this(null);
+    }
+
+    public TouchViewMetrics(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    @Nullable
+    public Listener getListener() {
+        return listener;
+    }
+
+    void onTouchEvent(@NonNull AXTouchView touchView, MotionEvent event, long nanos, int steps) {
+        touchEvents++;
+        touchEventNanos += nanos;
+        maxTouchEventNanos = Math.max(maxTouchEventNanos, nanos);
+        if (event.getActionMasked() == MotionEvent.ACTION_MOVE)
+            moveEvents++;
+        stepsAdvanced += steps;
+
+        if (listener != null)
+            listener.onTouchEventProcessed(touchView, event, nanos, steps);
+    }
+
+    void onFrame(@NonNull AXTouchView touchView, long nanos) {
+        frames++;
+        frameNanos += nanos;
+        maxFrameNanos = Math.max(maxFrameNanos, nanos);
+
+        if (listener != null)
+            listener.onFrameDrawn(touchView, nanos);
+    }
+
+    void onHitTest(int candidates) {
+        hitTests++;
+        hitTestCandidates += candidates;
+    }
+
+    void onGeometryCache(boolean hit) {
+        if (hit)
+            geometryCacheHits++;
+        else
+            geometryCacheMisses++;
+    }
+
+    void onThumbnailCache(boolean hit) {
+        if (hit)
+            thumbnailCacheHits++;
+        else
+            thumbnailCacheMisses++;
+    }
+
+    /**
+     * Resets all of the counters
+     */
+    public void reset() {
+        touchEvents = touchEventNanos = maxTouchEventNanos = 0;
+        moveEvents = stepsAdvanced = 0;
+        frames = frameNanos = maxFrameNanos = 0;
+        hitTests = hitTestCandidates = 0;
+        geometryCacheHits = geometryCacheMisses = 0;
+        thumbnailCacheHits = thumbnailCacheMisses = 0;
+    }
+
+    /**
+     * @return number of processed touch events
+     */
+    public long getTouchEvents() {
+        return touchEvents;
+    }
+
+    /**
+     * @return total time spent processing touch events, in nanoseconds
+     */
+    public long getTouchEventNanos() {
+        return touchEventNanos;
+    }
+
+    /**
+     * @return the longest time spent processing a touch event, in nanoseconds
+     */
+    public long getMaxTouchEventNanos() {
+        return maxTouchEventNanos;
+    }
+
+    /**
+     * @return number of processed move events
+     */
+    public long getMoveEvents() {
+        return moveEvents;
+    }
+
+    /**
+     * @return total number of steps advanced by touch events
+     */
+    public long getStepsAdvanced() {
+        return stepsAdvanced;
+    }
+
+    /**
+     * @return average number of steps advanced per move event
+     */
+    public float getStepsPerMoveEvent() {
+        return moveEvents == 0 ? 0 : (float) stepsAdvanced / moveEvents;
+    }
+
+    /**
+     * @return number of drawn frames
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return total time spent drawing frames, in nanoseconds
+     */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    /**
+     * @return the longest time spent drawing a frame, in nanoseconds
+     */
+    public long getMaxFrameNanos() {
+        return maxFrameNanos;
+    }
+
+    /**
+     * @return number of hit tests of touched points
+     */
+    public long getHitTests() {
+        return hitTests;
+    }
+
+    /**
+     * @return total number of touched points checked by hit tests
+     */
+    public long getHitTestCandidates() {
+        return hitTestCandidates;
+    }
+
+    public long getGeometryCacheHits() {
+        return geometryCacheHits;
+    }
+
+    public long getGeometryCacheMisses() {
+        return geometryCacheMisses;
+    }
+
+    public long getThumbnailCacheHits() {
+        return thumbnailCacheHits;
+    }
+
+    public long getThumbnailCacheMisses() {
+        return thumbnailCacheMisses;
+    }
+
+    /**
+     * @return hit rate of the shared geometry and thumbnail caches, between 0.0 and 1.0
+     */
+    public float getCacheHitRate() {
+        long hits = geometryCacheHits + thumbnailCacheHits;
+        long total = hits + geometryCacheMisses + thumbnailCacheMisses;
+        return total == 0 ? 0 : (float) hits / total;
+    }
+}
@@ -0,0 +1,532 @@
+package com.aghajari.touchview;
+
+import java.util.ArrayList;
+
+/**
+ * Platform independent tracing state of a sampled path: the progress, the touched points
+ * and the hit tests which move the progress forward.
+ * It doesn't depend on Android, so tracing can be tested and benchmarked on a plain JVM
+ * or run on a server; {@link AXTouchView} is an adapter which feeds it with the positions
+ * of touch events and draws its state.
+ * <p>
+ * Positions are in the coordinates of the path. An engine isn't thread-safe,
+ * but engines on different threads can share the same {@link PathSampleTable}.
+ */
+public final class TraceEngine {
+
+    /**
+     * The progress moves to the next step once the touch position reaches it
+     */
+    public static final int TRACKING_STEPS = 0;
+    /**
+     * The progress moves to the nearest point of the path ahead of it,
+     * within the touch tolerance of the touch position
+     */
+    public static final int TRACKING_PROJECTION = 1;
+
+    static final float DEFAULT_PROJECTION_WINDOW = 0.05f;
+
+    public interface Listener {
+        /**
+         * Called each time the progress moves forward by a touch position
+         */
+        void onStep(float progress);
+    }
+
+    private PathSampleTable samples;
+    private final PointBuffer points = new PointBuffer();
+    private final PointGrid pointGrid = new PointGrid(points);
+    private final float[] nextPoint = new float[2];
+    private final float[] point = new float[2];
+    private final SegmentTree.Query query = new SegmentTree.Query();
+    private int nextStop;
+    private boolean partialPoint;
+    private boolean pointsPending;
+    private float progress;
+    private long stepCount;
+
+    private float tolerance = 1.0f;
+    private int trackingMode = TRACKING_STEPS;
+    private float projectionWindow = DEFAULT_PROJECTION_WINDOW;
+    private Listener listener;
+
+    TraceEngine() {
+    }
+
+    TraceEngine(PathSampleTable samples) {
+        setSamples(samples);
+    }
+
+    /**
+     * Creates an engine for SVG path data, the path is flattened and sampled without Android.
+     *
+     * @param pathData the {@code d} attribute of an SVG path element
+     * @param step     step size, between 0.0 and 1.0
+     * @throws IllegalArgumentException if the path data is invalid
+     */
+    public static TraceEngine fromSvg(CharSequence pathData, float step) {
+        if (step <= 0 || step >= 1)
+            throw new IllegalArgumentException("the step must be between 0.0 and 1.0");
+
+        PolylineBuilder builder = new PolylineBuilder(null);
+        SvgPathParser.parse(pathData, builder);
+        return new TraceEngine(sample(builder.getContours(), step, PathSampleTable.STEP_FRACTION));
+    }
+
+    /**
+     * Samples the contours which have a length, each of them is a stroke
+     */
+    static PathSampleTable sample(Polyline[] contours, float step, int mode) {
+        ArrayList<Polyline> strokes = new ArrayList<>(contours.length);
+        for (Polyline contour : contours) {
+            if (contour.getLength() > 0)
+                strokes.add(contour);
+        }
+        if (strokes.isEmpty())
+            strokes.add(new Polyline());
+
+        float[] lengths = new float[strokes.size()];
+        for (int i = 0; i < lengths.length; i++)
+            lengths[i] = strokes.get(i).getLength();
+        return new PathSampleTable(strokes.toArray(new Polyline[0]), lengths, step, mode);
+    }
+
+    /**
+     * Sets the sampled path, the touched points are rebuilt for the current progress
+     */
+    void setSamples(PathSampleTable samples) {
+        this.samples = samples;
+        if (samples != null)
+            rebuildPoints();
+    }
+
+    PathSampleTable getSamples() {
+        return samples;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return maximum distance of a touch position from the point it touches
+     */
+    public float getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Sets the maximum distance of a touch position from the point it touches,
+     * such as half of the stroke width.
+     */
+    public void setTolerance(float tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @return {@link #TRACKING_STEPS} or {@link #TRACKING_PROJECTION}
+     */
+    public int getTrackingMode() {
+        return trackingMode;
+    }
+
+    /**
+     * @see AXTouchView#setTrackingMode(int)
+     */
+    public void setTrackingMode(int trackingMode) {
+        if (trackingMode != TRACKING_STEPS && trackingMode != TRACKING_PROJECTION)
+            throw new IllegalArgumentException("unknown tracking mode " + trackingMode);
+        this.trackingMode = trackingMode;
+    }
+
+    public float getProjectionWindow() {
+        return projectionWindow;
+    }
+
+    /**
+     * @see AXTouchView#setProjectionWindow(float)
+     */
+    public void setProjectionWindow(float window) {
+        if (window <= 0 || window > 1)
+            throw new IllegalArgumentException("the window must be between 0.0 and 1.0");
+        this.projectionWindow = window;
+    }
+
+    /**
+     * @return the current progress, between 0.0 and 1.0
+     */
+    public float getProgress() {
+        return progress;
+    }
+
+    /**
+     * Sets the current progress, only the touched points between the old and new progress
+     * are added or removed.
+     *
+     * @param progress the new progress, between 0.0 and 1.0
+     */
+    public void setProgress(float progress) {
+        this.progress = Math.min(Math.max(0, progress), 1);
+        if (samples != null)
+            updatePoints();
+    }
+
+    /**
+     * Sets the current progress, the touched points are rebuilt once they're needed
+     */
+    void restoreProgress(float progress) {
+        this.progress = Math.min(Math.max(0, progress), 1);
+        pointsPending = true;
+    }
+
+    /**
+     * Moves the progress back to the start of the path
+     */
+    public void reset() {
+        progress = 0;
+        if (samples != null) {
+            rebuildPoints();
+        } else {
+            pointGrid.clear();
+            partialPoint = false;
+            nextStop = 0;
+        }
+    }
+
+    /**
+     * @return number of times a touch position has moved the progress forward,
+     * a projection counts as a single step. It's never reset, so the difference
+     * between two calls is the number of steps between them.
+     */
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * @return true if the whole path has been traced
+     */
+    public boolean isCompleted() {
+        return progress >= 1;
+    }
+
+    /**
+     * @return true if (x, y) is within the tolerance of one of the touched points,
+     * so a gesture can start there
+     */
+    public boolean canStartTouching(float x, float y) {
+        ensurePoints();
+        pointGrid.setCellSize(tolerance);
+        return pointGrid.containsWithin(x, y, tolerance);
+    }
+
+    /**
+     * @return number of points checked by the last {@link #canStartTouching(float, float)}
+     */
+    int getLastHitTestCandidates() {
+        return pointGrid.getLastCandidates();
+    }
+
+    /**
+     * Goes through all of the consecutive steps which (x, y) is touching,
+     * or moves to the projection of (x, y) on {@link #TRACKING_PROJECTION} mode.
+     *
+     * @return true if the progress has changed
+     */
+    public boolean moveTo(float x, float y) {
+        if (samples == null)
+            return false;
+        ensurePoints();
+
+        if (trackingMode == TRACKING_PROJECTION)
+            return projectTo(x, y);
+
+        float oldProgress = progress;
+        while (nextStop < samples.size() && isTouchingNextPoint(x, y))
+            goToNext();
+        return progress != oldProgress;
+    }
+
+    /**
+     * Goes at most one step forward if (x, y) is touching the next step,
+     * or moves to the projection of (x, y) on {@link #TRACKING_PROJECTION} mode.
+     *
+     * @return true if the progress has changed
+     */
+    public boolean step(float x, float y) {
+        if (samples == null)
+            return false;
+        ensurePoints();
+
+        if (trackingMode == TRACKING_PROJECTION)
+            return projectTo(x, y);
+
+        if (nextStop < samples.size() && isTouchingNextPoint(x, y)) {
+            goToNext();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves the progress to the projection of (x, y) on the window ahead of it,
+     * the window never goes past the end of the current stroke.
+     *
+     * @see SegmentTree#project(float, float, float, float, float)
+     */
+    private boolean projectTo(float x, float y) {
+        int stroke = samples.getStroke(Math.min(nextStop, samples.size() - 1));
+        float end = Math.min(progress + projectionWindow, samples.getStrokeEnd(stroke));
+        float projected = samples.getSegmentTree().project(query, x, y, progress, end, tolerance);
+
+        if (projected > progress) {
+            progress = projected;
+            stepCount++;
+            updatePoints();
+            if (listener != null)
+                listener.onStep(progress);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Current point has touched, move to the next step.
+     * Once a stroke is completed, the start of the next stroke is unlocked.
+     */
+    private void goToNext() {
+        removePartialPoint();
+        progress = samples.getProgress(nextStop);
+        stepCount++;
+        pointGrid.add(nextPoint[0], nextPoint[1]);
+        nextStop++;
+
+        if (nextStop < samples.size() && samples.isStrokeStart(nextStop))
+            addStop(nextStop++);
+
+        updateNextPoint();
+        if (listener != null)
+            listener.onStep(progress);
+    }
+
+    /**
+     * @return true if (x, y) is within the tolerance of the next step
+     */
+    private boolean isTouchingNextPoint(float x, float y) {
+        float dx = x - nextPoint[0], dy = y - nextPoint[1];
+        return dx * dx + dy * dy <= tolerance * tolerance;
+    }
+
+    /**
+     * @return distance of (x, y) from the part of the path around the current progress,
+     * as far as the projection window on both sides of it
+     */
+    public float getDistance(float x, float y) {
+        if (samples == null)
+            return Float.POSITIVE_INFINITY;
+
+        float from = Math.max(progress - projectionWindow, 0);
+        float to = Math.min(progress + projectionWindow, 1);
+        if (samples.getSegmentTree().project(query, x, y, from, to, Float.POSITIVE_INFINITY) >= 0)
+            return query.getDistance();
+
+        samples.getPosition(progress, point);
+        float dx = x - point[0], dy = y - point[1];
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * @return number of strokes (contours) of the path
+     */
+    public int getStrokeCount() {
+        return samples == null ? 0 : samples.getStrokeCount();
+    }
+
+    /**
+     * @return index of the stroke which is being traced
+     */
+    public int getCurrentStroke() {
+        if (samples == null)
+            return 0;
+        ensurePoints();
+        return samples.getStroke(Math.min(nextStop, samples.size() - 1));
+    }
+
+    /**
+     * @return progress of the specified stroke, between 0.0 and 1.0.
+     * 0.0 if there is no path or the stroke is out of range.
+     */
+    public float getStrokeProgress(int stroke) {
+        if (samples == null || stroke < 0 || stroke >= samples.getStrokeCount())
+            return 0.0f;
+        float start = samples.getStrokeStart(stroke), end = samples.getStrokeEnd(stroke);
+        if (progress >= end)
+            return 1.0f;
+        if (progress <= start || end <= start)
+            return 0.0f;
+        return (progress - start) / (end - start);
+    }
+
+    /**
+     * @return number of touched points
+     */
+    public int getPointCount() {
+        ensurePoints();
+        return points.size();
+    }
+
+    /**
+     * Copies the last touched point
+     *
+     * @param out receives x and y
+     * @return false if there is no touched point
+     */
+    public boolean getCurrentPosition(float[] out) {
+        ensurePoints();
+        if (points.isEmpty())
+            return false;
+
+        int last = points.size() - 1;
+        out[0] = points.getX(last);
+        out[1] = points.getY(last);
+        return true;
+    }
+
+    /**
+     * Copies the segment between the last touched point and the next step,
+     * the part of the path which is being traced
+     *
+     * @param out receives x and y of the start and end of the segment
+     */
+    void getLocalSegment(float[] out) {
+        ensurePoints();
+        int last = points.size() - 1;
+        out[0] = last < 0 ? nextPoint[0] : points.getX(last);
+        out[1] = last < 0 ? nextPoint[1] : points.getY(last);
+        out[2] = nextPoint[0];
+        out[3] = nextPoint[1];
+    }
+
+    /**
+     * @return distance of (x, y) from the segment between the last touched point and the next step,
+     * it's found in constant time and the path isn't searched.
+     * The progress leads the touch by as much as the tolerance, so unless the last touched point is
+     * the start of a stroke, the segment is extended back by the tolerance and a touch which is
+     * behind the last touched point is measured from the path.
+     * @see #getLocalSegment(float[])
+     */
+    float getLocalDistance(float x, float y) {
+        ensurePoints();
+        int last = points.size() - 1;
+        float bx = nextPoint[0], by = nextPoint[1];
+        // Once the path is completed, the next step is the last touched point itself
+        if (isCompleted() && last > 0) {
+            bx = points.getX(last);
+            by = points.getY(last);
+            last--;
+        }
+        float ax = last < 0 ? bx : points.getX(last);
+        float ay = last < 0 ? by : points.getY(last);
+        float dx = bx - ax, dy = by - ay;
+        float length2 = dx * dx + dy * dy;
+
+        float t = 0;
+        if (length2 > 0) {
+            t = ((x - ax) * dx + (y - ay) * dy) / length2;
+            // Touched points are stops, except the partial point which is the last one
+            boolean strokeStart = !partialPoint && (last == 0 || samples.isStrokeStart(last));
+            float back = strokeStart ? 0 : tolerance / (float) Math.sqrt(length2);
+            t = Math.min(Math.max(t, -back), 1);
+        }
+        return (float) Math.hypot(x - ax - t * dx, y - ay - t * dy);
+    }
+
+    /**
+     * Adds the point of the specified progress as a touched point,
+     * the point will also be indexed for hit testing
+     *
+     * @see PathSampleTable#getPosition(float, float[])
+     */
+    private void addPoint(float v) {
+        samples.getPosition(v, point);
+        pointGrid.add(point[0], point[1]);
+    }
+
+    /**
+     * Adds the point of the specified stop as a touched point
+     */
+    private void addStop(int index) {
+        samples.getPosition(index, point);
+        pointGrid.add(point[0], point[1]);
+    }
+
+    /**
+     * Computes the position of the next step
+     */
+    private void updateNextPoint() {
+        samples.getPosition(Math.min(nextStop, samples.size() - 1), nextPoint);
+    }
+
+    /**
+     * Adds all of the stops up to the current progress as touched points
+     */
+    private void rebuildPoints() {
+        pointsPending = false;
+        pointGrid.clear();
+        partialPoint = false;
+        nextStop = 0;
+        updatePoints();
+    }
+
+    /**
+     * Updates the touched points to the current progress,
+     * only the stops between the old and new progress are added or removed.
+     */
+    private void updatePoints() {
+        if (pointsPending) {
+            rebuildPoints();
+            return;
+        }
+        removePartialPoint();
+
+        if (nextStop > 0 && samples.getProgress(nextStop - 1) > progress) {
+            int index = samples.ceilIndex(progress);
+            while (index < samples.size() && samples.getProgress(index) <= progress)
+                index++;
+
+            nextStop = Math.max(index, 1);
+            pointGrid.truncate(nextStop);
+        }
+
+        while (nextStop < samples.size() && samples.getProgress(nextStop) <= progress)
+            addStop(nextStop++);
+
+        if (samples.getProgress(nextStop - 1) != progress) {
+            addPoint(progress);
+            partialPoint = true;
+        }
+
+        updateNextPoint();
+    }
+
+    /**
+     * Rebuilds the touched points if they have been deferred by a restored progress
+     */
+    private void ensurePoints() {
+        if (pointsPending && samples != null)
+            rebuildPoints();
+    }
+
+    /**
+     * Removes the touched point which isn't on a stop, if there is any
+     */
+    private void removePartialPoint() {
+        if (partialPoint) {
+            pointGrid.truncate(points.size() - 1);
+            partialPoint = false;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.aghajari.touchview;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scores recorded traces against a path without a view, with the same tracing rules
+ * as {@link AXTouchView} on its default settings: touch history is tracked and
+ * only the first pointer of a gesture can trace.
+ * <p>
+ * A scorer only reads the sampled path, so the path is measured once and shared by
+ * all of the traces, which can be scored in parallel by {@link #scoreAll(List)}.
+ * The settings must not be changed while traces are being scored.
+ */
+public final class TraceScorer {
+
+    /**
+     * Traces which are scored on a single thread, larger batches are split
+     */
+    private static final int BATCH_SIZE = 8;
+
+    private static ForkJoinPool defaultPool;
+
+    private final PathSampleTable samples;
+    private final float tolerance;
+    private float offsetX, offsetY;
+    private int trackingMode = TraceEngine.TRACKING_STEPS;
+    private float projectionWindow = TraceEngine.DEFAULT_PROJECTION_WINDOW;
+
+    /**
+     * Quality of a single trace
+     */
+    public static final class Score {
+        /**
+         * The reached progress, between 0.0 and 1.0
+         */
+        public final float progress;
+        /**
+         * Number of gestures which have started on the touched segment
+         */
+        public final int gestures;
+        /**
+         * Number of tracked touch samples
+         */
+        public final int samples;
+        /**
+         * Mean and max distance of the tracked samples from the segment between
+         * the last touched point and the next step
+         */
+        public final float meanDistance, maxDistance;
+        /**
+         * Fraction of the tracked samples which were within the tolerance of the path
+         */
+        public final float accuracy;
+        /**
+         * Time from the first tracked gesture to the last tracked sample, in milliseconds
+         */
+        public final long duration;
+
+        Score(float progress, int gestures, int samples, double totalDistance,
+              float maxDistance, int accurateSamples, long duration) {
+            this.progress = progress;
+            this.gestures = gestures;
+            this.samples = samples;
+            this.meanDistance = samples == 0 ? 0 : (float) (totalDistance / samples);
+            this.maxDistance = maxDistance;
+            this.accuracy = samples == 0 ? 0 : (float) accurateSamples / samples;
+            this.duration = duration;
+        }
+
+        /**
+         * @return true if the whole path has been traced
+         */
+        public boolean isCompleted() {
+            return progress >= 1;
+        }
+    }
+
+    /**
+     * Creates a scorer which shares the samples of a prepared path
+     *
+     * @param tolerance maximum distance of a touch position from the point it touches,
+     *                  half of the stroke width of the view the traces were recorded on
+     */
+    public TraceScorer(@NonNull PreparedPath path, float tolerance) {
+        this(path.geometry.samples, tolerance);
+    }
+
+    TraceScorer(PathSampleTable samples, float tolerance) {
+        if (!(tolerance > 0))
+            throw new IllegalArgumentException("the tolerance must be greater than 0");
+
+        this.samples = samples;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Creates a scorer for SVG path data, the path is flattened and sampled without Android.
+     *
+     * @param pathData  the {@code d} attribute of an SVG path element
+     * @param step      step size, between 0.0 and 1.0
+     * @param tolerance maximum distance of a touch position from the point it touches
+     * @throws IllegalArgumentException if the path data is invalid
+     */
+    @NonNull
+    public static TraceScorer fromSvg(@NonNull CharSequence pathData, float step, float tolerance) {
+        return new TraceScorer(TraceEngine.fromSvg(pathData, step).getSamples(), tolerance);
+    }
+
+    /**
+     * Sets the position of the path in the view the traces were recorded on,
+     * such as the offset which centers the path. The offset is subtracted from the touch samples.
+     */
+    public void setOffset(float offsetX, float offsetY) {
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+    }
+
+    /**
+     * @see AXTouchView#setTrackingMode(int)
+     */
+    public void setTrackingMode(int trackingMode) {
+        if (trackingMode != TraceEngine.TRACKING_STEPS && trackingMode != TraceEngine.TRACKING_PROJECTION)
+            throw new IllegalArgumentException("unknown tracking mode " + trackingMode);
+        this.trackingMode = trackingMode;
+    }
+
+    public int getTrackingMode() {
+        return trackingMode;
+    }
+
+    /**
+     * @see AXTouchView#setProjectionWindow(float)
+     */
+    public void setProjectionWindow(float window) {
+        if (window <= 0 || window > 1)
+            throw new IllegalArgumentException("the window must be between 0.0 and 1.0");
+        this.projectionWindow = window;
+    }
+
+    public float getProjectionWindow() {
+        return projectionWindow;
+    }
+
+    /**
+     * Scores a single trace on the calling thread
+     */
+    @NonNull
+    public Score score(@NonNull TouchRecorder recording) {
+        return score(createEngine(), recording);
+    }
+
+    /**
+     * Scores the traces in parallel on a shared pool
+     *
+     * @return scores in the order of the recordings
+     */
+    @NonNull
+    public Score[] scoreAll(@NonNull List<TouchRecorder> recordings) {
+        return scoreAll(recordings, getDefaultPool());
+    }
+
+    /**
+     * Scores the traces in parallel on the specified pool
+     *
+     * @return scores in the order of the recordings
+     */
+    @NonNull
+    public Score[] scoreAll(@NonNull List<TouchRecorder> recordings, @NonNull ForkJoinPool pool) {
+        Score[] scores = new Score[recordings.size()];
+        pool.invoke(new ScoreTask(recordings, scores, 0, scores.length));
+        return scores;
+    }
+
+    private TraceEngine createEngine() {
+        TraceEngine engine = new TraceEngine(samples);
+        engine.setTolerance(tolerance);
+        engine.setTrackingMode(trackingMode);
+        engine.setProjectionWindow(projectionWindow);
+        return engine;
+    }
+
+    /**
+     * Feeds the recorded events to the engine the way {@link AXTouchView} handles them,
+     * the events after the path has been completed are ignored.
+     */
+    private Score score(TraceEngine engine, TouchRecorder recording) {
+        engine.reset();
+
+        boolean tracking = false;
+        int pointerId = -1;
+        int gestures = 0, tracked = 0, accurate = 0;
+        double totalDistance = 0;
+        float maxDistance = 0;
+        long startTime = -1, endTime = -1;
+
+        int size = recording.size();
+        for (int i = 0; i < size && !engine.isCompleted(); i++) {
+            if (recording.getType(i) != TouchRecorder.TYPE_EVENT)
+                continue;
+
+            int action = recording.getAction(i);
+            int pointerCount = recording.getValue(i);
+            int samples = 0;
+            while (i + 1 + samples < size && recording.getType(i + 1 + samples) == TouchRecorder.TYPE_SAMPLE)
+                samples++;
+
+            int first = i + 1;
+            i += samples;
+            if (pointerCount <= 0 || samples == 0 || samples % pointerCount != 0)
+                continue;
+
+            // The current positions are the last group of samples
+            int current = first + samples - pointerCount;
+            switch (action & TouchRecorder.ACTION_MASK) {
+                case TouchRecorder.ACTION_DOWN:
+                    tracking = engine.canStartTouching(recording.getX(current) - offsetX,
+                            recording.getY(current) - offsetY);
+                    if (tracking) {
+                        pointerId = recording.getAction(current);
+                        gestures++;
+                        if (startTime == -1)
+                            startTime = recording.getTime(current);
+                    }
+                    break;
+                case TouchRecorder.ACTION_POINTER_UP:
+                    int index = (action & TouchRecorder.ACTION_POINTER_INDEX_MASK)
+                            >> TouchRecorder.ACTION_POINTER_INDEX_SHIFT;
+                    if (index < pointerCount && recording.getAction(current + index) == pointerId)
+                        tracking = false;
+                    break;
+                case TouchRecorder.ACTION_UP:
+                case TouchRecorder.ACTION_CANCEL:
+                    tracking = false;
+                    break;
+                case TouchRecorder.ACTION_MOVE:
+                    if (!tracking)
+                        break;
+
+                    for (int sample = first; sample < first + samples; sample++) {
+                        if (recording.getAction(sample) != pointerId)
+                            continue;
+
+                        float x = recording.getX(sample) - offsetX, y = recording.getY(sample) - offsetY;
+                        engine.moveTo(x, y);
+                        float distance = engine.getLocalDistance(x, y);
+                        tracked++;
+                        totalDistance += distance;
+                        maxDistance = Math.max(maxDistance, distance);
+                        if (distance <= tolerance)
+                            accurate++;
+
+                        endTime = recording.getTime(sample);
+                        if (engine.isCompleted())
+                            break;
+                    }
+                    break;
+            }
+        }
+
+        return new Score(engine.getProgress(), gestures, tracked, totalDistance, maxDistance,
+                accurate, startTime == -1 || endTime == -1 ? 0 : endTime - startTime);
+    }
+
+    private static synchronized ForkJoinPool getDefaultPool() {
+        if (defaultPool == null)
+            defaultPool = new ForkJoinPool();
+        return defaultPool;
+    }
+
+    /**
+     * Splits the recordings in halves until a batch is small enough,
+     * each batch reuses a single engine for all of its traces.
+     */
+    private final class ScoreTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<TouchRecorder> recordings;
+        private final Score[] scores;
+        private final int from, to;
+
+        ScoreTask(List<TouchRecorder> recordings, Score[] scores, int from, int to) {
+            this.recordings = recordings;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SIZE) {
+                TraceEngine engine = createEngine();
+                for (int i = from; i < to; i++)
+                    scores[i] = score(engine, recordings.get(i));
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScoreTask(recordings, scores, from, mid),
+                    new ScoreTask(recordings, scores, mid, to));
+        }
+    }
+}
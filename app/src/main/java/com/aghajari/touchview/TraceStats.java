@@ -0,0 +1,194 @@
+package com.aghajari.touchview;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Quality of a tracing session of an {@link AXTouchView}: how far the touch has been
+ * from the path, how long each stroke took, and how often the user hesitated or went back.
+ * The view updates its statistics in constant time for each touch sample of the first tracked
+ * pointer, from the segment between the last touched point and the next step after the sample
+ * has moved the progress, so the path is never searched.
+ * {@link TraceScorer} measures distances the same way.
+ * A session starts when the path is set or reset.
+ *
+ * @see AXTouchView#getTraceStats(TraceStats)
+ */
+public final class TraceStats {
+
+    /**
+     * The progress hasn't moved for this long while the path is being touched
+     */
+    public static final long HESITATION_MILLIS = 300;
+
+    private int samples;
+    private double totalDistance;
+    private float maxDistance;
+    private long[] strokeTimes = new long[0];
+    private long trackingTime;
+    private int hesitations, backtracks;
+
+    // State of the current gesture
+    private long lastTime, lastProgressTime;
+    private float lastProgress;
+    private int lastStroke;
+    private float lastX, lastY;
+    private boolean hasLast, hesitating, backtracking;
+    private float backDistance;
+    private final float[] segment = new float[4];
+
+    /**
+     * Removes all of the statistics
+     *
+     * @param strokes number of strokes of the path
+     */
+    void reset(int strokes) {
+        samples = 0;
+        totalDistance = 0;
+        maxDistance = 0;
+        if (strokeTimes.length != strokes)
+            strokeTimes = new long[strokes];
+        else
+            Arrays.fill(strokeTimes, 0);
+        trackingTime = 0;
+        hesitations = backtracks = 0;
+        hasLast = false;
+    }
+
+    /**
+     * A gesture has started tracking the path
+     */
+    void onStart(TraceEngine engine, long time) {
+        lastTime = lastProgressTime = time;
+        lastProgress = engine.getProgress();
+        lastStroke = engine.getCurrentStroke();
+        hasLast = hesitating = backtracking = false;
+        backDistance = 0;
+    }
+
+    /**
+     * A touch sample has been passed to the engine
+     *
+     * @param tolerance distance from the path which counts as a backtrack
+     */
+    void onSample(TraceEngine engine, float x, float y, long time, float tolerance) {
+        engine.getLocalSegment(segment);
+        float dx = segment[2] - segment[0], dy = segment[3] - segment[1];
+        float length2 = dx * dx + dy * dy;
+
+        float distance = engine.getLocalDistance(x, y);
+        samples++;
+        totalDistance += distance;
+        maxDistance = Math.max(maxDistance, distance);
+
+        // The time since the last sample has been spent on the stroke which was being traced
+        long elapsed = Math.max(time - lastTime, 0);
+        trackingTime += elapsed;
+        if (lastStroke < strokeTimes.length)
+            strokeTimes[lastStroke] += elapsed;
+        lastStroke = engine.getCurrentStroke();
+        lastTime = time;
+
+        float progress = engine.getProgress();
+        if (progress != lastProgress) {
+            lastProgress = progress;
+            lastProgressTime = time;
+            hesitating = false;
+        } else if (!hesitating && time - lastProgressTime >= HESITATION_MILLIS) {
+            hesitating = true;
+            hesitations++;
+        }
+
+        // Movement against the direction of the path, counted once per backward run
+        if (hasLast && length2 > 0) {
+            float along = ((x - lastX) * dx + (y - lastY) * dy) / (float) Math.sqrt(length2);
+            if (along < 0) {
+                backDistance -= along;
+                if (!backtracking && backDistance > tolerance) {
+                    backtracking = true;
+                    backtracks++;
+                }
+            } else if (along > 0) {
+                backDistance = 0;
+                backtracking = false;
+            }
+        }
+        lastX = x;
+        lastY = y;
+        hasLast = true;
+    }
+
+    /**
+     * Copies the statistics of another session
+     */
+    public void set(@NonNull TraceStats stats) {
+        samples = stats.samples;
+        totalDistance = stats.totalDistance;
+        maxDistance = stats.maxDistance;
+        if (strokeTimes.length != stats.strokeTimes.length)
+            strokeTimes = new long[stats.strokeTimes.length];
+        System.arraycopy(stats.strokeTimes, 0, strokeTimes, 0, strokeTimes.length);
+        trackingTime = stats.trackingTime;
+        hesitations = stats.hesitations;
+        backtracks = stats.backtracks;
+    }
+
+    /**
+     * @return number of tracked touch samples
+     */
+    public int getSampleCount() {
+        return samples;
+    }
+
+    /**
+     * @return mean distance of the tracked samples from the path
+     */
+    public float getMeanDistance() {
+        return samples == 0 ? 0 : (float) (totalDistance / samples);
+    }
+
+    /**
+     * @return maximum distance of a tracked sample from the path
+     */
+    public float getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * @return number of strokes which have a tracking time
+     */
+    public int getStrokeCount() {
+        return strokeTimes.length;
+    }
+
+    /**
+     * @return time spent touching the specified stroke, in milliseconds
+     */
+    public long getStrokeTime(int stroke) {
+        return strokeTimes[stroke];
+    }
+
+    /**
+     * @return time spent touching the path, in milliseconds
+     */
+    public long getTrackingTime() {
+        return trackingTime;
+    }
+
+    /**
+     * @return number of times the progress has stopped for {@link #HESITATION_MILLIS}
+     * while the path was being touched
+     */
+    public int getHesitationCount() {
+        return hesitations;
+    }
+
+    /**
+     * @return number of times the touch has moved back along the path
+     * by more than the touch tolerance
+     */
+    public int getBacktrackCount() {
+        return backtracks;
+    }
+}
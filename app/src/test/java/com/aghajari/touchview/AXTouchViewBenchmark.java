@@ -0,0 +1,178 @@
+package com.aghajari.touchview;
+
+import android.graphics.Path;
+import android.graphics.PathMeasure;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Microbenchmarks of AXTouchView hot paths, reports time and allocated bytes per operation.
+ * Benchmarks are excluded from the regular unit tests, run them with:
+ * <pre>./gradlew testDebugUnitTest -Pbenchmark --tests '*Benchmark*' -i</pre>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class AXTouchViewBenchmark {
+
+    private static final int SIZE = 1000;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1000;
+
+    private static final float[] STEPS = {0.01f, 0.005f, 0.001f};
+
+    @Test
+    public void setProgress() {
+        for (int i = 0; i < PathData.paths.length; i++) {
+            for (float step : STEPS) {
+                AXTouchView touchView = createTouchView(PathData.paths[i], step);
+                measure(String.format(Locale.US, "setProgress path=%d step=%s", i, step),
+                        () -> {
+                            touchView.setProgress(0);
+                            touchView.setProgress(1);
+                        });
+            }
+        }
+    }
+
+    @Test
+    public void getPoint() {
+        for (int i = 0; i < PathData.paths.length; i++) {
+            for (float step : STEPS) {
+                PathSampleTable samples = new PathGeometry(PathData.paths[i], step,
+                        PathSampleTable.STEP_FRACTION).samples;
+                float[] out = new float[2];
+                measure(String.format(Locale.US, "getPoint x1000 path=%d step=%s", i, step),
+                        () -> {
+                            for (int j = 0; j < 1000; j++)
+                                samples.getPosition(j / 1000f, out);
+                        });
+            }
+        }
+    }
+
+    @Test
+    public void canStartTouching() {
+        for (int i = 0; i < PathData.paths.length; i++) {
+            for (float step : STEPS) {
+                AXTouchView touchView = createTouchView(PathData.paths[i], step);
+                touchView.setProgress(0.99f);
+
+                MotionEvent hit = obtain(MotionEvent.ACTION_DOWN, touchView.getCurrentPosition().x,
+                        touchView.getCurrentPosition().y);
+                MotionEvent miss = obtain(MotionEvent.ACTION_DOWN, -SIZE, -SIZE);
+                MotionEvent up = obtain(MotionEvent.ACTION_UP, 0, 0);
+
+                measure(String.format(Locale.US, "canStartTouching path=%d step=%s", i, step),
+                        () -> {
+                            touchView.dispatchTouchEvent(hit);
+                            touchView.dispatchTouchEvent(up);
+                            touchView.dispatchTouchEvent(miss);
+                        });
+            }
+        }
+    }
+
+    @Test
+    public void moveStream() {
+        for (int i = 0; i < PathData.paths.length; i++) {
+            for (float step : STEPS) {
+                for (int batch : new int[]{1, 4}) {
+                    AXTouchView touchView = createTouchView(PathData.paths[i], step);
+                    List<MotionEvent> events = createTrace(touchView, batch);
+
+                    measure(String.format(Locale.US, "moveStream path=%d step=%s batch=%d",
+                            i, step, batch), () -> {
+                        touchView.setProgress(0);
+                        for (int j = 0; j < events.size(); j++)
+                            touchView.dispatchTouchEvent(events.get(j));
+                    });
+                }
+            }
+        }
+    }
+
+    private static AXTouchView createTouchView(Path path, float step) {
+        AXTouchView touchView = new AXTouchView(RuntimeEnvironment.getApplication());
+        touchView.setStep(step);
+        touchView.setPath(path);
+        touchView.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        touchView.layout(0, 0, SIZE, SIZE);
+        return touchView;
+    }
+
+    /**
+     * Creates a down, move and up stream which follows the path of the view,
+     * each move event batches the specified number of positions.
+     */
+    private static List<MotionEvent> createTrace(AXTouchView touchView, int batch) {
+        touchView.setProgress(1);
+        Path traced = touchView.getSubPath();
+        touchView.setProgress(0);
+
+        PathMeasure measure = new PathMeasure(traced, false);
+        float length = measure.getLength();
+        float[] pos = new float[2];
+        int count = (int) (length / 4);
+
+        List<MotionEvent> events = new ArrayList<>();
+        measure.getPosTan(0, pos, null);
+        events.add(obtain(MotionEvent.ACTION_DOWN, pos[0], pos[1]));
+
+        MotionEvent move = null;
+        for (int i = 1; i <= count; i++) {
+            measure.getPosTan(length * i / count, pos, null);
+            if (move == null) {
+                move = obtain(MotionEvent.ACTION_MOVE, pos[0], pos[1]);
+            } else {
+                move.addBatch(SystemClock.uptimeMillis(), pos[0], pos[1], 1, 1, 0);
+            }
+
+            if (i % batch == 0 || i == count) {
+                events.add(move);
+                move = null;
+            }
+        }
+        events.add(obtain(MotionEvent.ACTION_UP, pos[0], pos[1]));
+        return events;
+    }
+
+    private static MotionEvent obtain(int action, float x, float y) {
+        long now = SystemClock.uptimeMillis();
+        return MotionEvent.obtain(now, now, action, x, y, 0);
+    }
+
+    private static void measure(String name, Runnable op) {
+        for (int i = 0; i < WARMUP; i++)
+            op.run();
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            op.run();
+        long time = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+
+        System.out.println(String.format(Locale.US, "%-48s %12.1f ns/op %10.1f B/op",
+                name, (double) time / ITERATIONS, (double) allocated / ITERATIONS));
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,171 @@
+package com.aghajari.touchview;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plain JVM tests of {@link SvgPathParser} and {@link PolylineBuilder}
+ */
+public class SvgPathParserTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    /**
+     * Records the commands as text, so they can be compared at once
+     */
+    private static class Recorder implements SvgPathParser.Handler {
+        final StringBuilder commands = new StringBuilder();
+
+        @Override
+        public void moveTo(float x, float y) {
+            append("M", x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            append("L", x, y);
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            append("Q", x1, y1, x2, y2);
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            append("C", x1, y1, x2, y2, x3, y3);
+        }
+
+        @Override
+        public void close() {
+            append("Z");
+        }
+
+        private void append(String command, float... values) {
+            if (commands.length() > 0)
+                commands.append(' ');
+            commands.append(command);
+            for (float v : values)
+                commands.append(' ').append(v == (int) v ? String.valueOf((int) v) : String.valueOf(v));
+        }
+    }
+
+    private static String parse(String data) {
+        Recorder recorder = new Recorder();
+        SvgPathParser.parse(data, recorder);
+        return recorder.commands.toString();
+    }
+
+    @Test
+    public void absoluteAndRelativeCommands() {
+        assertEquals("M 10 20 L 30 20 L 30 50 L 10 50 Z",
+                parse("M10 20 H30 V50 L10,50 z"));
+        assertEquals("M 10 20 L 15 25 L 15 20 L 20 20 Z M 30 30 L 40 40",
+                parse("m10 20 l5 5 v-5 h5 Z m20 10 10 10"));
+    }
+
+    @Test
+    public void compactNumbers() {
+        assertEquals("M 0.5 0.5 L -1 -2 L 1000 0.015",
+                parse("M.5.5L-1-2 1e3 1.5E-2"));
+    }
+
+    @Test
+    public void implicitLinesAfterMove() {
+        assertEquals("M 0 0 L 10 0 L 10 10", parse("M 0 0 10 0 10 10"));
+    }
+
+    @Test
+    public void reflectedControlPoints() {
+        assertEquals("M 0 0 C 0 10 10 10 10 0 C 10 -10 20 -10 20 0",
+                parse("M0 0 C0 10 10 10 10 0 S20 -10 20 0"));
+        assertEquals("M 0 0 Q 5 10 10 0 Q 15 -10 20 0",
+                parse("M0 0 Q5 10 10 0 T20 0"));
+        // Without a previous curve, the control point is the current point
+        assertEquals("M 0 0 Q 0 0 10 0", parse("M0 0 T10 0"));
+    }
+
+    @Test
+    public void commandAfterCloseStartsAtSubpathStart() {
+        assertEquals("M 5 5 L 10 5 Z M 5 5 L 5 10", parse("M5 5 L10 5 Z L5 10"));
+    }
+
+    @Test
+    public void arcsAreCubics() {
+        PolylineBuilder builder = new PolylineBuilder(null, 0.01f);
+        // A full circle of radius 50 as two half arcs, with compact flags
+        SvgPathParser.parse("M0 50 A50 50 0 1100 -50 A50 50 0 1 1 0 50", builder);
+
+        Polyline[] contours = builder.getContours();
+        assertEquals(1, contours.length);
+        assertEquals(2 * Math.PI * 50, contours[0].getLength(), 0.05);
+        assertEquals(0, contours[0].getLastX(), EPSILON);
+        assertEquals(50, contours[0].getLastY(), EPSILON);
+    }
+
+    @Test
+    public void readerMatchesCharSequence() throws IOException {
+        StringBuilder data = new StringBuilder("M0 0");
+        for (int i = 1; i <= 500; i++)
+            data.append(" L").append(i).append(',').append(i % 7);
+
+        Recorder fromReader = new Recorder();
+        SvgPathParser.parse(new StringReader(data.toString()), fromReader);
+        assertEquals(parse(data.toString()), fromReader.commands.toString());
+    }
+
+    @Test
+    public void invalidData() {
+        String[] invalid = {"10 10", "M10", "M1 1 L1e 2", "M0 0 A1 1 0 2 0 5 5", "M0 0 Z 5 5", "M0 0 X1 1"};
+        for (String data : invalid) {
+            try {
+                parse(data);
+                fail("accepted " + data);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void polylineMeasuresContours() {
+        PolylineBuilder builder = new PolylineBuilder(null);
+        SvgPathParser.parse("M0 0 H10 V10 H0 Z M20 0 M30 0 Q40 0 40 10", builder);
+
+        Polyline[] contours = builder.getContours();
+        assertEquals(3, contours.length);
+        assertEquals(40, contours[0].getLength(), EPSILON);
+        assertEquals(0, contours[1].getLength(), EPSILON);
+
+        float[] pos = new float[2], tan = new float[2];
+        contours[0].getPosTan(15, pos, tan);
+        assertEquals(10, pos[0], EPSILON);
+        assertEquals(5, pos[1], EPSILON);
+        assertEquals(0, tan[0], EPSILON);
+        assertEquals(1, tan[1], EPSILON);
+    }
+
+    @Test
+    public void sampleTableFromPolylines() {
+        PolylineBuilder builder = new PolylineBuilder(null);
+        SvgPathParser.parse("M0 0 H100 M0 10 H300", builder);
+
+        Polyline[] contours = builder.getContours();
+        PathSampleTable samples = new PathSampleTable(contours,
+                new float[]{contours[0].getLength(), contours[1].getLength()},
+                0.1f, PathSampleTable.STEP_FRACTION);
+
+        assertEquals(2, samples.getStrokeCount());
+        assertEquals(0.25f, samples.getStrokeEnd(0), EPSILON);
+        assertEquals(0.25f, samples.getStrokeStart(1), EPSILON);
+
+        float[] out = new float[2];
+        samples.getPosition(0.5f, out);
+        assertEquals(100, out[0], 1e-3f);
+        assertEquals(10, out[1], EPSILON);
+    }
+}
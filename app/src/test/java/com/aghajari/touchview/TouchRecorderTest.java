@@ -0,0 +1,100 @@
+package com.aghajari.touchview;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plain JVM tests of the binary format of {@link TouchRecorder},
+ * records are added by the callbacks which don't need a {@link android.view.MotionEvent}.
+ */
+public class TouchRecorderTest {
+
+    private static TouchRecorder record(int capacity, int count) {
+        TouchRecorder recorder = new TouchRecorder(capacity);
+        for (int i = 0; i < count; i++)
+            recorder.onCallback(TouchRecorder.TYPE_PROGRESS_CHANGED, i / 10f);
+        return recorder;
+    }
+
+    private static void assertSameRecords(TouchRecorder expected, TouchRecorder actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getType(i), actual.getType(i));
+            assertEquals(expected.getAction(i), actual.getAction(i));
+            assertEquals(expected.getValue(i), actual.getValue(i));
+            assertEquals(expected.getTime(i), actual.getTime(i));
+            assertEquals(expected.getX(i), actual.getX(i), 0);
+            assertEquals(expected.getY(i), actual.getY(i), 0);
+        }
+    }
+
+    private static byte[] toBytes(TouchRecorder recorder) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recorder.writeTo(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void roundTripsBuffer() {
+        TouchRecorder recorder = record(8, 5);
+        ByteBuffer buffer = recorder.toByteBuffer();
+        assertEquals(recorder.getByteSize(), buffer.remaining());
+        assertSameRecords(recorder, TouchRecorder.readFrom(buffer));
+    }
+
+    @Test
+    public void roundTripsWrappedStream() throws IOException {
+        // The oldest two records are overwritten, so the ring starts in the middle
+        TouchRecorder recorder = record(4, 6);
+        assertEquals(4, recorder.size());
+        assertEquals(0.2f, recorder.getX(0), 0);
+
+        byte[] data = toBytes(recorder);
+        assertEquals(recorder.getByteSize(), data.length);
+        assertSameRecords(recorder, TouchRecorder.readFrom(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    public void roundTripsLargeStream() throws IOException {
+        TouchRecorder recorder = record(1000, 1000);
+        byte[] data = toBytes(recorder);
+        assertSameRecords(recorder, TouchRecorder.readFrom(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    public void rejectsCorruptHeader() throws IOException {
+        byte[] data = toBytes(record(4, 3));
+        data[0] ^= 1;
+        try {
+            TouchRecorder.readFrom(new ByteArrayInputStream(data));
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void rejectsCorruptCount() throws IOException {
+        byte[] data = toBytes(record(4, 3));
+        // The count is the last int of the header
+        for (int index = 13; index < 17; index++) {
+            byte[] corrupt = data.clone();
+            corrupt[index] ^= 0x40;
+            try {
+                TouchRecorder.readFrom(new ByteArrayInputStream(corrupt));
+                fail();
+            } catch (IllegalArgumentException ignored) {
+            }
+            try {
+                TouchRecorder.readFrom(ByteBuffer.wrap(corrupt));
+                fail();
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+}
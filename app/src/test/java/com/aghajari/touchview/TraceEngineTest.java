@@ -0,0 +1,127 @@
+package com.aghajari.touchview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plain JVM tests of {@link TraceEngine}, the path is parsed from SVG path data
+ * so no Android class is needed.
+ */
+public class TraceEngineTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    private static TraceEngine create(String pathData) {
+        TraceEngine engine = TraceEngine.fromSvg(pathData, 0.01f);
+        engine.setTolerance(5);
+        return engine;
+    }
+
+    @Test
+    public void tracesLine() {
+        TraceEngine engine = create("M0 0 L100 0");
+        assertTrue(engine.canStartTouching(2, 2));
+        assertFalse(engine.canStartTouching(50, 0));
+
+        for (int x = 0; x <= 100; x += 4)
+            engine.moveTo(x, 1);
+        assertTrue(engine.isCompleted());
+        assertEquals(1, engine.getProgress(), EPSILON);
+        assertTrue(engine.canStartTouching(50, 0));
+    }
+
+    @Test
+    public void ignoresPositionsOffPath() {
+        TraceEngine engine = create("M0 0 L100 0");
+        assertFalse(engine.moveTo(50, 0));
+        assertFalse(engine.moveTo(3, 20));
+        assertEquals(0, engine.getProgress(), 0);
+    }
+
+    @Test
+    public void stepMovesOnce() {
+        TraceEngine engine = create("M0 0 L100 0");
+        assertTrue(engine.step(2, 0));
+        assertEquals(0.01f, engine.getProgress(), EPSILON);
+
+        engine.setProgress(0);
+        assertTrue(engine.moveTo(2, 0));
+        assertEquals(0.07f, engine.getProgress(), EPSILON);
+    }
+
+    @Test
+    public void unlocksNextStroke() {
+        TraceEngine engine = create("M0 0 L100 0 M0 50 L100 50");
+        assertEquals(2, engine.getStrokeCount());
+        assertFalse(engine.canStartTouching(0, 50));
+
+        for (int x = 0; x <= 100; x += 4)
+            engine.moveTo(x, 0);
+        assertEquals(0.5f, engine.getProgress(), EPSILON);
+        assertEquals(1, engine.getCurrentStroke());
+        assertEquals(1, engine.getStrokeProgress(0), 0);
+        assertTrue(engine.canStartTouching(0, 50));
+
+        // The end of the first stroke doesn't lead to the second one
+        engine.moveTo(100, 50);
+        assertEquals(0.5f, engine.getProgress(), EPSILON);
+    }
+
+    @Test
+    public void strokeProgressOutOfRange() {
+        assertEquals(0, new TraceEngine().getStrokeProgress(0), 0);
+
+        TraceEngine engine = create("M0 0 L100 0");
+        engine.setProgress(1);
+        assertEquals(0, engine.getStrokeProgress(-1), 0);
+        assertEquals(0, engine.getStrokeProgress(1), 0);
+    }
+
+    @Test
+    public void projectsWithinWindow() {
+        TraceEngine engine = create("M0 0 L100 0");
+        engine.setTrackingMode(TraceEngine.TRACKING_PROJECTION);
+        engine.setProjectionWindow(0.1f);
+
+        assertTrue(engine.moveTo(8, 3));
+        assertEquals(0.08f, engine.getProgress(), EPSILON);
+        assertFalse(engine.moveTo(50, 0));
+        assertEquals(0.08f, engine.getProgress(), EPSILON);
+    }
+
+    @Test
+    public void setProgressMovesPoints() {
+        TraceEngine engine = create("M0 0 L100 0");
+        float[] position = new float[2];
+
+        engine.setProgress(0.505f);
+        assertTrue(engine.getCurrentPosition(position));
+        assertEquals(50.5f, position[0], EPSILON);
+        assertTrue(engine.canStartTouching(50, 0));
+
+        engine.setProgress(0.2f);
+        assertTrue(engine.getCurrentPosition(position));
+        assertEquals(20, position[0], EPSILON);
+        assertFalse(engine.canStartTouching(50, 0));
+        assertEquals(21, engine.getPointCount());
+
+        engine.reset();
+        assertEquals(1, engine.getPointCount());
+    }
+
+    @Test
+    public void notifiesSteps() {
+        TraceEngine engine = create("M0 0 L100 0");
+        int[] steps = new int[1];
+        engine.setListener(progress -> steps[0]++);
+
+        engine.moveTo(2, 0);
+        assertEquals(7, steps[0]);
+        assertEquals(7, engine.getStepCount());
+
+        // Going back doesn't count as a step
+        engine.setProgress(0);
+        assertEquals(7, engine.getStepCount());
+    }
+}
@@ -0,0 +1,141 @@
+package com.aghajari.touchview;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plain JVM tests of {@link TraceScorer}, recordings are built in the binary format
+ * of {@link TouchRecorder} so no MotionEvent is needed.
+ */
+public class TraceScorerTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    /**
+     * Writes single pointer events in the binary format of {@link TouchRecorder}
+     */
+    private static class Trace {
+        private final ByteBuffer records = ByteBuffer.allocate(1 << 16);
+        private int count;
+        private int time;
+
+        Trace event(int action, float... positions) {
+            record(TouchRecorder.TYPE_EVENT, action, 1, 0, 0);
+            for (int i = 0; i < positions.length; i += 2)
+                record(TouchRecorder.TYPE_SAMPLE, 0, 0, positions[i], positions[i + 1]);
+            time += 10;
+            return this;
+        }
+
+        private void record(int type, int action, int value, float x, float y) {
+            records.put((byte) type);
+            records.putShort((short) action);
+            records.putShort((short) value);
+            records.putInt(time);
+            records.putFloat(x);
+            records.putFloat(y);
+            count++;
+        }
+
+        TouchRecorder build() {
+            ByteBuffer buffer = ByteBuffer.allocate(17 + records.position());
+            buffer.putInt(0x41585452);
+            buffer.put((byte) 1);
+            buffer.putLong(1000);
+            buffer.putInt(count);
+            buffer.put(records.array(), 0, records.position());
+            buffer.flip();
+            return TouchRecorder.readFrom(buffer);
+        }
+    }
+
+    /**
+     * A trace along y = dy from x = 0 to the specified x, one move event per 4 pixels
+     */
+    private static TouchRecorder line(float toX, float dy) {
+        Trace trace = new Trace().event(TouchRecorder.ACTION_DOWN, 0, dy);
+        for (int x = 4; x <= toX; x += 4)
+            trace.event(TouchRecorder.ACTION_MOVE, x, dy);
+        return trace.event(TouchRecorder.ACTION_UP, toX, dy).build();
+    }
+
+    @Test
+    public void scoresCompletedTrace() {
+        TraceScorer scorer = TraceScorer.fromSvg("M0 0 L100 0", 0.01f, 5);
+        TraceScorer.Score score = scorer.score(line(100, 2));
+
+        assertTrue(score.isCompleted());
+        assertEquals(1, score.gestures);
+        // Completed at x = 96, which is within the tolerance of the end
+        assertEquals(24, score.samples);
+        assertEquals(2, score.meanDistance, EPSILON);
+        assertEquals(2, score.maxDistance, EPSILON);
+        assertEquals(1, score.accuracy, 0);
+        assertEquals(240, score.duration);
+    }
+
+    @Test
+    public void scoresPartialTrace() {
+        TraceScorer scorer = TraceScorer.fromSvg("M0 0 L100 0", 0.01f, 5);
+        TraceScorer.Score score = scorer.score(line(48, 0));
+        assertFalse(score.isCompleted());
+        assertEquals(0.53f, score.progress, EPSILON);
+
+        // The last sample is tracked, but it's too far to move the progress,
+        // so it's measured from the next step at (14, 0)
+        score = scorer.score(new Trace()
+                .event(TouchRecorder.ACTION_DOWN, 0, 0)
+                .event(TouchRecorder.ACTION_MOVE, 5, 3, 10, 4, 15, 12)
+                .event(TouchRecorder.ACTION_UP, 15, 12)
+                .build());
+        assertEquals(3, score.samples);
+        float last = (float) Math.hypot(1, 12);
+        assertEquals((7 + last) / 3, score.meanDistance, EPSILON);
+        assertEquals(last, score.maxDistance, EPSILON);
+        assertEquals(2 / 3f, score.accuracy, EPSILON);
+        assertEquals(0.13f, score.progress, EPSILON);
+    }
+
+    @Test
+    public void ignoresGesturesOffTouchedSegment() {
+        TraceScorer scorer = TraceScorer.fromSvg("M0 0 L100 0", 0.01f, 5);
+        TraceScorer.Score score = scorer.score(new Trace()
+                .event(TouchRecorder.ACTION_DOWN, 50, 0)
+                .event(TouchRecorder.ACTION_MOVE, 54, 0, 58, 0)
+                .event(TouchRecorder.ACTION_UP, 58, 0)
+                .build());
+
+        assertEquals(0, score.gestures);
+        assertEquals(0, score.samples);
+        assertEquals(0, score.progress, 0);
+    }
+
+    @Test
+    public void appliesOffset() {
+        TraceScorer scorer = TraceScorer.fromSvg("M0 0 L100 0", 0.01f, 5);
+        scorer.setOffset(0, 100);
+        assertTrue(scorer.score(line(100, 100)).isCompleted());
+    }
+
+    @Test
+    public void scoresInParallel() {
+        TraceScorer scorer = TraceScorer.fromSvg("M0 0 L100 50 L0 100", 0.005f, 5);
+        List<TouchRecorder> recordings = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            recordings.add(line(i, i % 7));
+
+        TraceScorer.Score[] scores = scorer.scoreAll(recordings);
+        assertEquals(recordings.size(), scores.length);
+        for (int i = 0; i < scores.length; i++) {
+            TraceScorer.Score expected = scorer.score(recordings.get(i));
+            assertEquals(expected.progress, scores[i].progress, 0);
+            assertEquals(expected.samples, scores[i].samples);
+            assertEquals(expected.meanDistance, scores[i].meanDistance, 0);
+        }
+    }
+}
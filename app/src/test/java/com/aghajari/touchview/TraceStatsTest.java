@@ -0,0 +1,82 @@
+package com.aghajari.touchview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plain JVM tests of {@link TraceStats}, samples are fed the way {@link AXTouchView} feeds them
+ */
+public class TraceStatsTest {
+
+    private static final float EPSILON = 1e-4f;
+    private static final float TOLERANCE = 5;
+
+    private final TraceEngine engine = TraceEngine.fromSvg("M0 0 L100 0 M0 50 L100 50", 0.01f);
+    private final TraceStats stats = new TraceStats();
+
+    {
+        engine.setTolerance(TOLERANCE);
+        stats.reset(engine.getStrokeCount());
+        stats.onStart(engine, 0);
+    }
+
+    private void move(float x, float y, long time) {
+        engine.moveTo(x, y);
+        stats.onSample(engine, x, y, time, TOLERANCE);
+    }
+
+    @Test
+    public void measuresDistance() {
+        move(2, 3, 10);
+        move(4, 1, 20);
+        assertEquals(2, stats.getSampleCount());
+        assertEquals(2, stats.getMeanDistance(), EPSILON);
+        assertEquals(3, stats.getMaxDistance(), EPSILON);
+    }
+
+    @Test
+    public void measuresDistanceFromSegment() {
+        // Before the start of the path, the line through it would be 4 away
+        move(-3, 4, 10);
+        assertEquals(5, stats.getMaxDistance(), EPSILON);
+    }
+
+    @Test
+    public void measuresStrokeTimes() {
+        for (int x = 4; x <= 100; x += 4)
+            move(x, 0, x * 10);
+        for (int x = 0; x <= 20; x += 4)
+            move(x, 50, 1000 + x * 10);
+
+        assertEquals(2, stats.getStrokeCount());
+        assertEquals(1000 + 200, stats.getTrackingTime());
+        // The first stroke is completed at x = 96, the rest of the time belongs to the second one
+        assertEquals(960, stats.getStrokeTime(0));
+        assertEquals(240, stats.getStrokeTime(1));
+    }
+
+    @Test
+    public void countsHesitationsAndBacktracks() {
+        move(8, 0, 100);
+        move(8, 0, 300);
+        move(8, 0, 500);
+        move(8, 0, 900);
+        assertEquals(1, stats.getHesitationCount());
+
+        move(12, 0, 1000);
+        move(9, 0, 1010);
+        move(6, 0, 1020);
+        move(3, 0, 1030);
+        move(4, 0, 1040);
+        move(1, 0, 1050);
+        assertEquals(1, stats.getBacktrackCount());
+        assertEquals(1, stats.getHesitationCount());
+
+        TraceStats snapshot = new TraceStats();
+        snapshot.set(stats);
+        assertEquals(10, snapshot.getSampleCount());
+        assertEquals(stats.getMeanDistance(), snapshot.getMeanDistance(), 0);
+        assertEquals(2, snapshot.getStrokeCount());
+    }
+}